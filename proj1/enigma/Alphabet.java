@@ -1,28 +1,37 @@
 package enigma;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
  *  @author Pavel Gladkevich
  */
 class Alphabet {
-    /** A hashmap of all of the characters. */
-    private HashMap<Integer, Character> _hm;
+    /** The characters of the alphabet, by index. */
+    private final char[] _chars;
+    /** The index of every character from 0 up to the largest character in
+     *  the alphabet, or -1 for characters not in the alphabet. Both
+     *  directions of the mapping are thus a single array read. */
+    private final int[] _index;
     /** A new alphabet containing CHARS.  Character number #k has index
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
-        _hm = new HashMap<Integer, Character>();
-        for (int i = 0; i < chars.length(); i += 1) {
-            _hm.put(i, chars.charAt(i));
+        _chars = chars.toCharArray();
+        int last = 0;
+        for (char c : _chars) {
+            last = Math.max(last, c);
+        }
+        _index = new int[last + 1];
+        Arrays.fill(_index, -1);
+        for (int i = 0; i < _chars.length; i += 1) {
+            if (_index[_chars[i]] != -1) {
+                throw error("Character '%c' appears twice in the alphabet.",
+                        _chars[i]);
+            }
+            _index[_chars[i]] = i;
         }
-    }
-    /** Return the HashMap of ints and chars.
-     * @return*/
-    HashMap<Integer, Character> returnHM() {
-        return this._hm;
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -32,28 +41,24 @@ class Alphabet {
 
     /** Returns the size of the alphabet. */
     int size() {
-        return _hm.size();
+        return _chars.length;
     }
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        return _hm.containsValue(ch);
+        return ch < _index.length && _index[ch] >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
      *  0 <= INDEX < size(). */
     char toChar(int index) {
-        return _hm.get(index);
+        return _chars[index];
     }
 
     /** Returns the index of character CH which must be in
-     *  the alphabet. This is the inverse of toChar(). */
+     *  the alphabet. This is the inverse of toChar(). Returns -1 if CH is
+     *  not in the alphabet. */
     int toInt(char ch) {
-        for (Map.Entry entry : _hm.entrySet()) {
-            if (Objects.equals(ch, entry.getValue())) {
-                return (int) entry.getKey();
-            }
-        }
-        return -1;
+        return ch < _index.length ? _index[ch] : -1;
     }
 }
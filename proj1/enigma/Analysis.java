@@ -0,0 +1,567 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** Key recovery for the enigma machine, invoked as
+ *      java enigma.Analysis CONFIG CIPHERTEXT [OPTIONS]
+ *  where CONFIG is a configuration file as for enigma.Main and CIPHERTEXT
+ *  names a file holding an encrypted message (anything in it that is not
+ *  in the alphabet, such as spaces and line breaks, is ignored). It tries
+ *  every choice of rotors for the slots with every setting of them, and
+ *  prints the best keys found as settings lines for enigma.Main, followed
+ *  by the number of keys tried per second. The OPTIONS are
+ *      -c CRIB     Plaintext known to be in the message; only the keys
+ *                  that decrypt to it are kept. Without a crib, keys are
+ *                  ranked by the index of coincidence of the decryption
+ *                  of (up to COINCIDENCE_LENGTH characters of) the message.
+ *      -a N        The crib is at character N of the message (default 0).
+ *      -o ROTORS   Try only the rotors named in ROTORS (a single argument,
+ *                  reflector first), in that order.
+ *      -r          Also try every ring setting of the rightmost rotor;
+ *                  otherwise all rings are at the first letter.
+ *      -p CYCLES   The plugboard; none by default.
+ *      -n K        Print the best K keys (default 5).
+ *      -t N        Use N threads (default: one per processor).
+ *
+ *  Keys are numbered and ranges of key numbers are tasks of a
+ *  ForkJoinPool, halved until they are at most LEAF keys long, so that
+ *  idle threads steal the untouched halves from busy ones. Each choice of
+ *  rotors is compiled once into an Engine, which each task copies (sharing
+ *  its tables) and then sets for each key in turn, so trying a key makes
+ *  no objects and, with a crib, usually takes one or two conversions.
+ *  @author Pavel Gladkevich
+ */
+public final class Analysis {
+
+    /** Largest number of characters decrypted to score a key by its index
+     *  of coincidence. */
+    static final int COINCIDENCE_LENGTH = 250;
+    /** Largest number of keys tried by one task. */
+    static final int LEAF = 1 << 12;
+
+    /** Recover keys as directed by ARGS (see above). Exits normally if
+     *  there are no errors; otherwise with code 1. */
+    public static void main(String... args) {
+        try {
+            run(args, System.out);
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Recover keys as directed by ARGS, printing the results on OUT. */
+    static void run(String[] args, PrintStream out) {
+        if (args.length < 2) {
+            throw error("Usage: java enigma.Analysis CONFIG CIPHERTEXT "
+                    + "[OPTIONS]");
+        }
+        Machine machine = new Main(new String[] { args[0] }).readConfig();
+        Alphabet alpha = machine.alphabet();
+        String crib = null;
+        int at = 0, keep = 5;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String[]> orders = null;
+        String plugboard = null;
+        boolean rings = false;
+        for (int i = 2; i < args.length; i += 1) {
+            String option = args[i];
+            if (option.equals("-r")) {
+                rings = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw error("Missing value for %s", option);
+            }
+            i += 1;
+            switch (option) {
+            case "-c":
+                crib = args[i];
+                break;
+            case "-a":
+                at = number(args[i]);
+                break;
+            case "-o":
+                String[] names = args[i].trim().split("\\s+");
+                machine.insertRotors(names);
+                orders = new ArrayList<>();
+                orders.add(names);
+                break;
+            case "-p":
+                plugboard = args[i];
+                break;
+            case "-n":
+                keep = Math.max(1, number(args[i]));
+                break;
+            case "-t":
+                threads = Math.max(1, number(args[i]));
+                break;
+            default:
+                throw error("Unknown option: %s", option);
+            }
+        }
+        if (orders == null) {
+            orders = orders(machine);
+        }
+        char[] cipher = letters(read(args[1]), alpha);
+        Analysis analysis = new Analysis(machine, orders, plugboard, rings);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Candidate> best;
+        long start = System.nanoTime();
+        try {
+            if (crib == null) {
+                best = analysis.coincidence(cipher, keep, pool);
+            } else {
+                best = analysis.crib(cipher, crib.toCharArray(), at, keep,
+                                     pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Candidate candidate : best) {
+            out.println(analysis.settings(candidate.key()));
+            out.printf("    %s %.4f: %s%n",
+                       crib == null ? "coincidence" : "crib at " + at,
+                       candidate.score(),
+                       analysis.decrypt(candidate.key(), cipher, 40));
+        }
+        if (crib != null) {
+            out.printf("%d keys matched the crib.%n", analysis.hits());
+        }
+        out.printf("Tried %d keys in %.2f s (%.0f keys/s) on %d "
+                   + "threads.%n", analysis.keys(), seconds,
+                   analysis.keys() / seconds, threads);
+    }
+
+    /** Return the non-negative integer denoted by S. */
+    private static int number(String s) {
+        try {
+            int n = Integer.parseInt(s);
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException excp) {
+            /* Reported below. */
+        }
+        throw error("Not a non-negative number: %s", s);
+    }
+
+    /** Return the contents of the file named NAME. */
+    private static String read(String name) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(name)));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return the characters of TEXT that are in ALPHA. */
+    static char[] letters(String text, Alphabet alpha) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i += 1) {
+            if (alpha.contains(text.charAt(i))) {
+                result.append(text.charAt(i));
+            }
+        }
+        return result.toString().toCharArray();
+    }
+
+    /** Return every choice of rotors for the slots of MACHINE, each as the
+     *  names of the rotors, reflector first. */
+    static List<String[]> orders(Machine machine) {
+        List<Rotor> reflectors = new ArrayList<>();
+        List<Rotor> fixed = new ArrayList<>();
+        List<Rotor> moving = new ArrayList<>();
+        for (Rotor r : machine.availableRotors()) {
+            if (r.reflecting()) {
+                reflectors.add(r);
+            } else if (r.rotates()) {
+                moving.add(r);
+            } else {
+                fixed.add(r);
+            }
+        }
+        List<String[]> result = new ArrayList<>();
+        String[] names = new String[machine.numRotors()];
+        for (Rotor reflector : reflectors) {
+            names[0] = reflector.name();
+            choose(names, 1, machine.numRotors() - machine.numPawls(),
+                   fixed, moving, result);
+        }
+        return result;
+    }
+
+    /** Add to RESULT every way of filling NAMES from slot SLOT on with
+     *  rotors not already in NAMES, taking them from FIXED for the slots
+     *  before FIRSTMOVING and from MOVING for the rest. */
+    private static void choose(String[] names, int slot, int firstMoving,
+                               List<Rotor> fixed, List<Rotor> moving,
+                               List<String[]> result) {
+        if (slot == names.length) {
+            result.add(names.clone());
+            return;
+        }
+        for (Rotor r : slot < firstMoving ? fixed : moving) {
+            boolean used = false;
+            for (int i = 0; i < slot; i += 1) {
+                used |= names[i].equals(r.name());
+            }
+            if (!used) {
+                names[slot] = r.name();
+                choose(names, slot + 1, firstMoving, fixed, moving, result);
+            }
+        }
+    }
+
+    /** An analysis trying the rotors of MACHINE in each of ORDERS (names
+     *  of rotors, reflector first), with the plugboard whose cycles are
+     *  PLUGBOARD (none if null), and every ring setting of the rightmost
+     *  rotor iff RINGS. */
+    Analysis(Machine machine, List<String[]> orders, String plugboard,
+             boolean rings) {
+        _alphabet = machine.alphabet();
+        _size = _alphabet.size();
+        _orders = orders;
+        _plugboard = plugboard;
+        _rings = rings;
+        _slots = machine.numRotors();
+        _engines = new Engine[orders.size()];
+        for (int k = 0; k < _engines.length; k += 1) {
+            Rotor[] rotors = new Rotor[_slots];
+            for (int i = 0; i < _slots; i += 1) {
+                rotors[i] = find(machine, orders.get(k)[i]);
+            }
+            _engines[k] = new Engine(_alphabet, rotors, machine.numPawls(),
+                plugboard == null ? null : new Permutation(plugboard,
+                                                           _alphabet));
+        }
+        long perOrder = rings ? _size : 1;
+        for (int i = 1; i < _slots; i += 1) {
+            perOrder *= _size;
+        }
+        _perOrder = perOrder;
+    }
+
+    /** Return the rotor of MACHINE named NAME. */
+    private static Rotor find(Machine machine, String name) {
+        for (Rotor r : machine.availableRotors()) {
+            if (r.name().equals(name)) {
+                return r;
+            }
+        }
+        throw error("Rotor %s not found.", name);
+    }
+
+    /** Return the best KEEP keys (in order of key number) that decrypt
+     *  the characters of CIPHER from AT on to begin with the characters of
+     *  CRIB, trying the keys on POOL. */
+    List<Candidate> crib(char[] cipher, char[] crib, int at, int keep,
+                         ForkJoinPool pool) {
+        if (at + crib.length > cipher.length) {
+            throw error("The crib does not fit in the message.");
+        }
+        _crib = indices(crib);
+        _at = at;
+        return search(cipher, keep, pool);
+    }
+
+    /** Return the KEEP keys whose decryptions of CIPHER have the highest
+     *  index of coincidence, best first, trying the keys on POOL. */
+    List<Candidate> coincidence(char[] cipher, int keep, ForkJoinPool pool) {
+        _crib = null;
+        _at = 0;
+        return search(cipher, keep, pool);
+    }
+
+    /** Return the best KEEP keys for CIPHER, trying them all on POOL. */
+    private List<Candidate> search(char[] cipher, int keep,
+                                   ForkJoinPool pool) {
+        _cipher = indices(cipher);
+        _keep = keep;
+        Best best = pool.invoke(new Search(0, keys()));
+        _hits = best._hits;
+        return best._candidates;
+    }
+
+    /** Return the indices in my alphabet of the characters of CHARS. */
+    private int[] indices(char[] chars) {
+        int[] result = new int[chars.length];
+        for (int i = 0; i < chars.length; i += 1) {
+            result[i] = _alphabet.toInt(chars[i]);
+            if (result[i] < 0) {
+                throw error("Character '%c' is not in the alphabet.",
+                            chars[i]);
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of keys there are to try. */
+    long keys() {
+        return _perOrder * _orders.size();
+    }
+
+    /** Return the number of keys that matched the crib in the last
+     *  search (0 after a search without one). */
+    long hits() {
+        return _hits;
+    }
+
+    /** Return a copy of the engine for the rotors of key number KEY, set
+     *  to the settings and rings of KEY. */
+    private Engine engine(long key) {
+        Engine engine = new Engine(_engines[(int) (key / _perOrder)]);
+        set(engine, key);
+        return engine;
+    }
+
+    /** Set ENGINE, an engine for the rotors of key number KEY, to the
+     *  settings and rings of KEY. */
+    private void set(Engine engine, long key) {
+        long rest = key % _perOrder;
+        int ring = 0;
+        if (_rings) {
+            ring = (int) (rest % _size);
+            rest /= _size;
+        }
+        engine.set(_slots - 1, (int) (rest % _size), ring);
+        rest /= _size;
+        for (int slot = _slots - 2; slot > 0; slot -= 1) {
+            engine.set(slot, (int) (rest % _size), 0);
+            rest /= _size;
+        }
+    }
+
+    /** Return key number KEY as a settings line for enigma.Main. */
+    String settings(long key) {
+        StringBuilder line = new StringBuilder("*");
+        for (String name : _orders.get((int) (key / _perOrder))) {
+            line.append(' ').append(name);
+        }
+        long rest = key % _perOrder;
+        char[] rings = new char[_slots - 1];
+        Arrays.fill(rings, _alphabet.toChar(0));
+        if (_rings) {
+            rings[_slots - 2] = _alphabet.toChar((int) (rest % _size));
+            rest /= _size;
+        }
+        char[] settings = new char[_slots - 1];
+        for (int i = _slots - 2; i >= 0; i -= 1) {
+            settings[i] = _alphabet.toChar((int) (rest % _size));
+            rest /= _size;
+        }
+        line.append(' ').append(settings).append(' ').append(rings);
+        if (_plugboard != null) {
+            line.append(' ').append(_plugboard);
+        }
+        return line.toString();
+    }
+
+    /** Return the decryption of the first N characters (or all, if there
+     *  are fewer) of CIPHER with key number KEY. */
+    String decrypt(long key, char[] cipher, int n) {
+        n = Math.min(n, cipher.length);
+        char[] result = new char[n];
+        engine(key).convert(cipher, 0, result, 0, n);
+        return new String(result);
+    }
+
+    /** Try the keys numbered FROM up to TO, returning the best. */
+    private Best tryKeys(long from, long to) {
+        Best best = new Best(_keep);
+        Engine engine = null;
+        int order = -1;
+        int[] counts = new int[_size];
+        for (long key = from; key < to; key += 1) {
+            int k = (int) (key / _perOrder);
+            if (k != order) {
+                order = k;
+                engine = new Engine(_engines[k]);
+            }
+            set(engine, key);
+            if (_crib != null) {
+                if (matches(engine)) {
+                    best._hits += 1;
+                    best.add(key, _crib.length);
+                }
+            } else {
+                best.add(key, coincidence(engine, counts));
+            }
+        }
+        return best;
+    }
+
+    /** Return true iff ENGINE decrypts the message at _at to _crib. */
+    private boolean matches(Engine engine) {
+        engine.skip(_at);
+        for (int j = 0; j < _crib.length; j += 1) {
+            if (engine.convert(_cipher[_at + j]) != _crib[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the index of coincidence of the decryption by ENGINE of (the
+     *  start of) the message, using COUNTS to count the characters. */
+    private double coincidence(Engine engine, int[] counts) {
+        Arrays.fill(counts, 0);
+        int n = Math.min(_cipher.length, COINCIDENCE_LENGTH);
+        for (int j = 0; j < n; j += 1) {
+            counts[engine.convert(_cipher[j])] += 1;
+        }
+        long sum = 0;
+        for (int c : counts) {
+            sum += (long) c * (c - 1);
+        }
+        return n < 2 ? 0 : (double) sum / ((long) n * (n - 1));
+    }
+
+    /** A key found by a search: its number and its score. */
+    static class Candidate {
+
+        /** Key number KEY, scoring SCORE. */
+        Candidate(long key, double score) {
+            _key = key;
+            _score = score;
+        }
+
+        /** Return my key number. */
+        long key() {
+            return _key;
+        }
+
+        /** Return my score. */
+        double score() {
+            return _score;
+        }
+
+        /** Return true iff I rank ahead of OTHER: I score higher, or the
+         *  same with a lower key number. */
+        boolean before(Candidate other) {
+            return _score > other._score
+                || (_score == other._score && _key < other._key);
+        }
+
+        /** My key number. */
+        private final long _key;
+        /** My score. */
+        private final double _score;
+    }
+
+    /** The best candidates from some range of keys. */
+    private static class Best {
+
+        /** An empty list keeping at most KEEP (at least 1) candidates. */
+        Best(int keep) {
+            _keep = keep;
+        }
+
+        /** Add key number KEY, scoring SCORE, if it is among the best. */
+        void add(long key, double score) {
+            int n = _candidates.size();
+            if (n == _keep && !(score > _candidates.get(n - 1).score())) {
+                return;
+            }
+            insert(new Candidate(key, score));
+        }
+
+        /** Insert CANDIDATE in its place, if it is among the best. */
+        private void insert(Candidate candidate) {
+            int i = _candidates.size();
+            while (i > 0 && candidate.before(_candidates.get(i - 1))) {
+                i -= 1;
+            }
+            if (i < _keep) {
+                _candidates.add(i, candidate);
+                if (_candidates.size() > _keep) {
+                    _candidates.remove(_keep);
+                }
+            }
+        }
+
+        /** Return these candidates merged with those of OTHER. */
+        Best merge(Best other) {
+            for (Candidate candidate : other._candidates) {
+                insert(candidate);
+            }
+            _hits += other._hits;
+            return this;
+        }
+
+        /** The most candidates to keep. */
+        private final int _keep;
+        /** The best candidates, best first. */
+        private final List<Candidate> _candidates = new ArrayList<>();
+        /** The number of keys that matched the crib. */
+        private long _hits;
+    }
+
+    /** The trial of a range of keys, split in halves until they are at
+     *  most LEAF keys long. */
+    private class Search extends RecursiveTask<Best> {
+
+        /** A trial of keys numbered FROM up to TO. */
+        Search(long from, long to) {
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected Best compute() {
+            if (_to - _from <= LEAF) {
+                return tryKeys(_from, _to);
+            }
+            long mid = (_from + _to) >>> 1;
+            Search left = new Search(_from, mid);
+            left.fork();
+            Best right = new Search(mid, _to).compute();
+            return left.join().merge(right);
+        }
+
+        /** The first key to try. */
+        private final long _from;
+        /** The key after the last to try. */
+        private final long _to;
+    }
+
+    /** The alphabet of the machine. */
+    private final Alphabet _alphabet;
+    /** The size of the alphabet. */
+    private final int _size;
+    /** The number of rotor slots. */
+    private final int _slots;
+    /** The choices of rotors to try, reflector first. */
+    private final List<String[]> _orders;
+    /** The compiled rotors of each choice in _orders. */
+    private final Engine[] _engines;
+    /** The cycles of the plugboard, or null if there is none. */
+    private final String _plugboard;
+    /** True iff the ring of the rightmost rotor is part of the key. */
+    private final boolean _rings;
+    /** The number of keys for each choice of rotors. */
+    private final long _perOrder;
+    /** The message being analyzed, as indices in the alphabet. */
+    private int[] _cipher;
+    /** The crib, as indices, or null if keys are scored by coincidence. */
+    private int[] _crib;
+    /** The position of the crib in the message. */
+    private int _at;
+    /** The number of best keys to keep. */
+    private int _keep;
+    /** The number of keys that matched the crib in the last search. */
+    private long _hits;
+}
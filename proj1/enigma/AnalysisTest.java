@@ -0,0 +1,117 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the key-recovery Analysis.
+ *  @author Pavel Gladkevich
+ */
+public class AnalysisTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** The plugboard of Benchmark.naval(). */
+    private static final String PLUGBOARD = "(HQ) (EX) (IP) (TR) (BY)";
+
+    /** Some English plaintext. */
+    private static final String PLAIN =
+        "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOODMADEOFSLIDINGFOLDING"
+        + "ROSEWOODNEATLYPUTITALLTOGETHERINITSCASEITLAYCOMPACTLYFOLDEDINTO"
+        + "NEARLYNOTHINGBUTHEOPENEDOUTTHEHINGESPUSHEDANDPULLEDTHEJOINTSAND"
+        + "HINGESTILLITLOOKEDALLSQUARESANDOBLONGSLIKEACOMPLICATEDFIGURE";
+
+    /** Return the encryption of PLAIN by MACHINE. */
+    private static char[] encrypt(Machine machine) {
+        char[] result = new char[PLAIN.length()];
+        machine.convert(PLAIN.toCharArray(), result);
+        return result;
+    }
+
+    /** Return the settings lines of the keys in CANDIDATES found by
+     *  ANALYSIS. */
+    private static List<String> settings(Analysis analysis,
+                                         List<Analysis.Candidate> candidates) {
+        List<String> result = new ArrayList<>();
+        for (Analysis.Candidate candidate : candidates) {
+            result.add(analysis.settings(candidate.key()));
+        }
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testOrders() {
+        List<String[]> orders = Analysis.orders(Benchmark.naval());
+        assertEquals(6, orders.size());
+        for (String[] order : orders) {
+            assertEquals("B", order[0]);
+            assertEquals("Beta", order[1]);
+        }
+    }
+
+    @Test
+    public void testCrib() {
+        Machine machine = Benchmark.naval();
+        machine.setRotors("QXLE");
+        char[] cipher = encrypt(machine);
+        List<String[]> orders = new ArrayList<>();
+        orders.add(Benchmark.ROTORS);
+        Analysis analysis = new Analysis(machine, orders, PLUGBOARD, false);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            List<Analysis.Candidate> found =
+                analysis.crib(cipher, "HIAWATHA".toCharArray(), 15, 10, pool);
+            assertEquals(26 * 26 * 26 * 26, analysis.keys());
+            assertTrue(analysis.hits() >= 1);
+            assertTrue(settings(analysis, found).contains(
+                    "* B Beta III IV I QXLE AAAA " + PLUGBOARD));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCoincidence() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"),
+                                                      UPPER)));
+        rotors.add(new FixedRotor("Beta", new Permutation(NAVALA.get("Beta"),
+                                                          UPPER)));
+        rotors.add(new MovingRotor("I", new Permutation(NAVALA.get("I"),
+                                                        UPPER), "Q"));
+        rotors.add(new MovingRotor("II", new Permutation(NAVALA.get("II"),
+                                                         UPPER), "E"));
+        Machine machine = new Machine(UPPER, 3, 1, rotors);
+        machine.insertRotors(new String[] { "B", "Beta", "II" });
+        machine.setRotors("KR");
+        char[] cipher = encrypt(machine);
+        Analysis analysis =
+            new Analysis(machine, Analysis.orders(machine), null, false);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            List<Analysis.Candidate> found =
+                analysis.coincidence(cipher, 3, pool);
+            assertEquals(2 * 26 * 26, analysis.keys());
+            assertEquals(3, found.size());
+            assertEquals("* B Beta II KR AA",
+                         analysis.settings(found.get(0).key()));
+            assertEquals(PLAIN.substring(0, 40),
+                         analysis.decrypt(found.get(0).key(), cipher, 40));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
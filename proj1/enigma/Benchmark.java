@@ -0,0 +1,260 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+
+/** Throughput measurements for the enigma machine, invoked as
+ *      java enigma.Benchmark [CHARACTERS]
+ *  which encrypts CHARACTERS (by default 4,000,000) random letters with the
+ *  naval rotors, first one Rotor method at a time (as Machine.convert did
+ *  before it used an Engine), then with Machine.convert(int) per character,
+ *  with the bulk Machine.convert(char[], char[]), then through a
+ *  StepTable, and then in parallel slices on the common ForkJoinPool, and
+ *  prints the rate of each. It
+ *  then times as many single Permutation lookups, both through the int[]
+ *  tables of Permutation and through a HashMap with a scan of its entries
+ *  for the inverse, as Permutation used to do. Finally, it goes through a
+ *  configuration of CHARACTERS / 1000 rotors, first with a Scanner, as
+ *  Main used to, and then with a Tokenizer, and prints the rotors read
+ *  per second.
+ *  @author Pavel Gladkevich
+ */
+public class Benchmark {
+
+    /** Number of timed runs of each measurement; the best is reported. */
+    private static final int RUNS = 5;
+
+    /** Run the benchmarks described in ARGS. */
+    public static void main(String... args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 4000000;
+        Random random = new Random(61);
+        char[] in = new char[length];
+        for (int i = 0; i < length; i += 1) {
+            in[i] = (char) ('A' + random.nextInt(26));
+        }
+        char[] out = new char[length];
+
+        Machine m = naval();
+        Rotor[] slots = new Rotor[ROTORS.length];
+        for (int i = 0; i < slots.length; i += 1) {
+            slots[i] = m.returnSelectedRotor(ROTORS[i]);
+        }
+        report("rotor objects", length, () -> {
+            m.setRotors("AXLE");
+            for (int i = 0; i < length; i += 1) {
+                out[i] = (char) ('A' + rotorByRotor(slots, in[i] - 'A'));
+            }
+        });
+        report("convert(int)", length, () -> {
+            m.setRotors("AXLE");
+            for (int i = 0; i < length; i += 1) {
+                out[i] = (char) ('A' + m.convert(in[i] - 'A'));
+            }
+        });
+        report("convert(char[])", length, () -> {
+            m.setRotors("AXLE");
+            m.convert(in, out);
+        });
+        Machine tabled = naval();
+        tabled.useStepTable(true);
+        report("step table", length, () -> {
+            tabled.setRotors("AXLE");
+            tabled.convert(in, out);
+        });
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        report("parallel (" + pool.getParallelism() + ")", length, () -> {
+            m.setRotors("AXLE");
+            m.convert(in, 0, out, 0, length, pool);
+        });
+
+        System.out.println();
+        Permutation perm = new Permutation(
+            "(AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)", new Alphabet());
+        HashMap<Integer, Integer> map = new HashMap<>();
+        for (int k = 0; k < perm.size(); k += 1) {
+            map.put(k, perm.permute(k));
+        }
+        int[] sink = new int[1];
+        report("map permute", length, () -> {
+            int c = 0;
+            for (int i = 0; i < length; i += 1) {
+                c = map.get((c + in[i]) % 26);
+            }
+            sink[0] += c;
+        });
+        report("map invert", length, () -> {
+            int c = 0;
+            for (int i = 0; i < length; i += 1) {
+                c = mapInvert(map, (c + in[i]) % 26);
+            }
+            sink[0] += c;
+        });
+        report("array permute", length, () -> {
+            int c = 0;
+            for (int i = 0; i < length; i += 1) {
+                c = perm.permute((c + in[i]) % 26);
+            }
+            sink[0] += c;
+        });
+        report("array invert", length, () -> {
+            int c = 0;
+            for (int i = 0; i < length; i += 1) {
+                c = perm.invert((c + in[i]) % 26);
+            }
+            sink[0] += c;
+        });
+
+        System.out.println();
+        String config = config(length / 1000);
+        report("config scanner", length / 1000, () -> {
+            sink[0] += scanConfig(config);
+        });
+        report("config tokenizer", length / 1000, () -> {
+            sink[0] += tokenizeConfig(config);
+        });
+        if (sink[0] == 42) {
+            System.out.println();
+        }
+    }
+
+    /** Return the text of a configuration file with ROTORS random
+     *  rotors. */
+    private static String config(int rotors) {
+        Random random = new Random(37);
+        StringBuilder text = new StringBuilder("ABCDEFGHIJKLMNOPQRSTUVWXYZ\n");
+        text.append(" 5 3\n");
+        for (int r = 0; r < rotors; r += 1) {
+            ArrayList<Character> letters = new ArrayList<>();
+            for (char c = 'A'; c <= 'Z'; c += 1) {
+                letters.add(c);
+            }
+            Collections.shuffle(letters, random);
+            text.append(" R").append(r).append(r % 2 == 0 ? " MQ " : " N ");
+            for (int i = 0; i < letters.size(); i += 2) {
+                text.append('(').append(letters.get(i))
+                    .append(letters.get(i + 1)).append(") ");
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /** Return the number of rotors in CONFIG, going through its tokens
+     *  with a Scanner as Main.readConfig and readRotor did. */
+    private static int scanConfig(String config) {
+        Scanner s = new Scanner(config);
+        s.next();
+        s.nextInt();
+        s.nextInt();
+        int rotors = 0;
+        while (s.hasNext()) {
+            s.next();
+            s.next();
+            while (s.hasNext(" *\\((.*?)\\) *")) {
+                s.next();
+            }
+            rotors += 1;
+        }
+        return rotors;
+    }
+
+    /** Return the number of rotors in CONFIG, going through its tokens
+     *  with a Tokenizer as Main.readConfig and readRotor do. */
+    private static int tokenizeConfig(String config) {
+        Tokenizer s = new Tokenizer(config);
+        s.next();
+        s.nextInt();
+        s.nextInt();
+        int rotors = 0;
+        while (s.hasNext()) {
+            s.next();
+            s.next();
+            while (s.hasNextCycles()) {
+                s.next();
+            }
+            rotors += 1;
+        }
+        return rotors;
+    }
+
+    /** Return the key of MAP whose value is C, scanning every entry as
+     *  Permutation.invert did when it was backed by a HashMap. */
+    private static int mapInvert(HashMap<Integer, Integer> map, int c) {
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            if (entry.getValue() == c) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
+    /** Time RUNS runs of BODY, which converts LENGTH characters, and print
+     *  the best rate under the name NAME. */
+    static void report(String name, long length, Runnable body) {
+        body.run();
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < RUNS; r += 1) {
+            long start = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-18s %10.3f M/s%n", name,
+                length * 1e3 / best);
+    }
+
+    /** Return a machine with naval rotors B Beta III IV I, set to AXLE with
+     *  a plugboard of (HQ) (EX) (IP) (TR) (BY). */
+    static Machine naval() {
+        Alphabet upper = new Alphabet();
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation("(AE) (BN) (CK) (DQ) "
+                + "(FU) (GY) (HW) (IJ) (LO) (MP) (RX) (SZ) (TV)", upper)));
+        rotors.add(new FixedRotor("Beta", new Permutation(
+                "(ALBEVFCYODJWUGNMQTZSKPR) (HIX)", upper)));
+        rotors.add(new MovingRotor("III", new Permutation(
+                "(ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)", upper), "V"));
+        rotors.add(new MovingRotor("IV", new Permutation(
+                "(AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)", upper), "J"));
+        rotors.add(new MovingRotor("I", new Permutation(
+                "(AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)", upper), "Q"));
+        Machine m = new Machine(upper, ROTORS.length, 3, rotors);
+        m.insertRotors(ROTORS);
+        m.setRotors("AXLE");
+        m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", upper));
+        return m;
+    }
+
+    /** Return the conversion of C by the rotors in SLOTS, without a
+     *  plugboard, stepping and converting through the Rotor methods. */
+    private static int rotorByRotor(Rotor[] slots, int c) {
+        int n = slots.length;
+        boolean[] willRotate = new boolean[n];
+        willRotate[n - 1] = true;
+        for (int i = n - 1; i > n - 3; i -= 1) {
+            if (slots[i].atNotch()) {
+                willRotate[i] = true;
+                willRotate[i - 1] = true;
+            }
+        }
+        for (int i = 1; i < n; i += 1) {
+            if (willRotate[i]) {
+                slots[i].advance();
+            }
+        }
+        for (int i = n - 1; i >= 0; i -= 1) {
+            c = slots[i].convertForward(c);
+        }
+        for (int i = 1; i < n; i += 1) {
+            c = slots[i].convertBackward(c);
+        }
+        return c;
+    }
+
+    /** The rotors of the benchmarked machine, reflector first. */
+    static final String[] ROTORS = { "B", "Beta", "III", "IV", "I" };
+}
@@ -0,0 +1,301 @@
+package enigma;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** The rotors and plugboard of a Machine compiled into primitive tables.
+ *  Each rotor slot holds the forward and inverse substitution of its rotor
+ *  at the 0 setting as int[] arrays, plus its current offset (setting less
+ *  ring setting), so that passing a character through a rotor is two array
+ *  reads and two additions. Notches are a boolean[] per slot indexed by
+ *  setting, and characters are mapped to indices by the Alphabet's own
+ *  direct tables. Converting a character therefore allocates nothing,
+ *  looks up no rotor by name and searches no map.
+ *
+ *  An Engine is built for one choice of rotors and plugboard. The settings
+ *  and rings live in the Rotor objects, which remain the machine's state:
+ *  they are copied in by load() and the settings copied back by store().
+ *  @author Pavel Gladkevich
+ */
+class Engine {
+
+    /** An engine for alphabet ALPHA whose slots hold ROTORS (ROTORS[0] is
+     *  the reflector), of which the last PAWLS rotate, and whose plugboard
+     *  is PLUGBOARD, or none if PLUGBOARD is null. */
+    Engine(Alphabet alpha, Rotor[] rotors, int pawls, Permutation plugboard) {
+        _alphabet = alpha;
+        _size = alpha.size();
+        _slots = rotors.length;
+        _firstMoving = _slots - pawls;
+        _forward = new int[_slots][];
+        _inverse = new int[_slots][];
+        _notch = new boolean[_slots][_size];
+        for (int i = 0; i < _slots; i += 1) {
+            _forward[i] = table(rotors[i].permutation());
+            _inverse[i] = invert(_forward[i]);
+            String notches = rotors[i].notches();
+            for (int k = 0; k < notches.length(); k += 1) {
+                _notch[i][alpha.toInt(notches.charAt(k))] = true;
+            }
+        }
+        _plugboard = plugboard == null ? identity() : table(plugboard);
+        _untilNotch = new int[_slots][];
+        for (int i = 0; i < _slots; i += 1) {
+            _untilNotch[i] = untilNotch(_notch[i]);
+        }
+        _setting = new int[_slots];
+        _offset = new int[_slots];
+    }
+
+    /** A copy of ENGINE, sharing its (unchanging) tables but with its own
+     *  copy of the current settings of ENGINE, so that the two may then be
+     *  stepped independently, in different threads if need be. */
+    Engine(Engine engine) {
+        _alphabet = engine._alphabet;
+        _size = engine._size;
+        _slots = engine._slots;
+        _firstMoving = engine._firstMoving;
+        _forward = engine._forward;
+        _inverse = engine._inverse;
+        _notch = engine._notch;
+        _plugboard = engine._plugboard;
+        _untilNotch = engine._untilNotch;
+        _setting = engine._setting.clone();
+        _offset = engine._offset.clone();
+    }
+
+    /** Return, for each setting of a rotor with notches NOTCH, how many
+     *  times it must advance to reach a notch (0 if it is at one), or
+     *  Integer.MAX_VALUE if it has no notches. */
+    private static int[] untilNotch(boolean[] notch) {
+        int n = notch.length;
+        int[] result = new int[n];
+        int next = Integer.MAX_VALUE;
+        for (int pass = 0; pass < 2; pass += 1) {
+            for (int k = n - 1; k >= 0; k -= 1) {
+                if (notch[k]) {
+                    next = k;
+                }
+                if (next != Integer.MAX_VALUE) {
+                    result[k] = next >= k ? next - k : next + n - k;
+                } else {
+                    result[k] = Integer.MAX_VALUE;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the table of PERM applied to 0 .. size - 1. */
+    private int[] table(Permutation perm) {
+        int[] result = new int[_size];
+        for (int k = 0; k < _size; k += 1) {
+            result[k] = perm.permute(k);
+        }
+        return result;
+    }
+
+    /** Return the inverse of the permutation table TABLE. */
+    private static int[] invert(int[] table) {
+        int[] result = new int[table.length];
+        for (int k = 0; k < table.length; k += 1) {
+            result[table[k]] = k;
+        }
+        return result;
+    }
+
+    /** Return the identity permutation table. */
+    private int[] identity() {
+        int[] result = new int[_size];
+        for (int k = 0; k < _size; k += 1) {
+            result[k] = k;
+        }
+        return result;
+    }
+
+    /** Copy the settings and rings of ROTORS, which must be the rotors this
+     *  engine was built for, into this engine. */
+    void load(Rotor[] rotors) {
+        for (int i = 0; i < _slots; i += 1) {
+            _setting[i] = wrap(rotors[i].setting());
+            _offset[i] = wrap(_setting[i] - rotors[i].ring());
+        }
+    }
+
+    /** Set the rotor in slot SLOT to SETTING, with ring setting RING
+     *  (both indices in the alphabet), as if it had been loaded so. */
+    void set(int slot, int setting, int ring) {
+        _setting[slot] = wrap(setting);
+        _offset[slot] = wrap(setting - ring);
+    }
+
+    /** Copy the settings of the rotating rotors of this engine back into
+     *  ROTORS. */
+    void store(Rotor[] rotors) {
+        for (int i = _firstMoving; i < _slots; i += 1) {
+            rotors[i].set(_setting[i]);
+        }
+    }
+
+    /** Return the value of P modulo the size of the alphabet. */
+    private int wrap(int p) {
+        int r = p % _size;
+        return r < 0 ? r + _size : r;
+    }
+
+    /** Advance the rotating rotors by one step, as Machine.convert does
+     *  before each character. The rightmost rotor always moves; a rotor at a
+     *  notch moves itself (unless it is the leftmost rotating rotor) and the
+     *  rotor to its left. Every notch is tested before anything moves. */
+    void step() {
+        int last = _slots - 1;
+        for (int i = _firstMoving; i < last; i += 1) {
+            if (_notch[i + 1][_setting[i + 1]]
+                || (i > _firstMoving && _notch[i][_setting[i]])) {
+                advance(i);
+            }
+        }
+        advance(last);
+    }
+
+    /** Move the rotor in slot I forward one position. */
+    private void advance(int i) {
+        _setting[i] = _setting[i] + 1 == _size ? 0 : _setting[i] + 1;
+        _offset[i] = _offset[i] + 1 == _size ? 0 : _offset[i] + 1;
+    }
+
+    /** Advance the rotors as converting STEPS characters would, without
+     *  converting anything. Between the steps at which any rotor but the
+     *  rightmost moves, only the rightmost moves, and those runs are
+     *  skipped whole, so this takes time proportional to STEPS divided by
+     *  the size of the alphabet rather than to STEPS. */
+    void skip(long steps) {
+        int last = _slots - 1;
+        while (steps > 0) {
+            int run = alone();
+            if (run == 0) {
+                step();
+                steps -= 1;
+            } else {
+                int k = (int) Math.min(steps, run);
+                _setting[last] = (int) ((_setting[last] + (long) k) % _size);
+                _offset[last] = (int) ((_offset[last] + (long) k) % _size);
+                steps -= k;
+            }
+        }
+    }
+
+    /** Return the number of steps, starting now, during which only the
+     *  rightmost rotor would move (Integer.MAX_VALUE if it will always
+     *  move alone). */
+    private int alone() {
+        int last = _slots - 1;
+        if (_firstMoving == last) {
+            return Integer.MAX_VALUE;
+        }
+        for (int i = _firstMoving + 1; i < last; i += 1) {
+            if (_notch[i][_setting[i]]) {
+                return 0;
+            }
+        }
+        return _untilNotch[last][_setting[last]];
+    }
+
+    /** Return the result of converting C (an index in the range 0 .. size -
+     *  1), after first advancing the rotors. */
+    int convert(int c) {
+        step();
+        return pass(c);
+    }
+
+    /** Return the result of converting C (an index in the range 0 .. size -
+     *  1) with the rotors where they are, without advancing them. */
+    int pass(int c) {
+        int n = _size;
+        c = _plugboard[c];
+        for (int i = _slots - 1; i >= 0; i -= 1) {
+            int off = _offset[i];
+            int k = c + off;
+            c = _forward[i][k >= n ? k - n : k] - off;
+            c = c < 0 ? c + n : c;
+        }
+        for (int i = 1; i < _slots; i += 1) {
+            int off = _offset[i];
+            int k = c + off;
+            c = _inverse[i][k >= n ? k - n : k] - off;
+            c = c < 0 ? c + n : c;
+        }
+        return _plugboard[c];
+    }
+
+    /** Convert the LENGTH characters of IN starting at INSTART into OUT
+     *  starting at OUTSTART. Every character must be in the alphabet. */
+    void convert(char[] in, int inStart, char[] out, int outStart,
+                 int length) {
+        for (int j = 0; j < length; j += 1) {
+            out[outStart + j] =
+                _alphabet.toChar(convert(toInt(in[inStart + j])));
+        }
+    }
+
+    /** Return the size of my alphabet. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the number of rotating rotors. */
+    int pawls() {
+        return _slots - _firstMoving;
+    }
+
+    /** Return the current setting of rotating rotor number K, counting
+     *  from 0 at the leftmost rotating rotor. */
+    int setting(int k) {
+        return _setting[_firstMoving + k];
+    }
+
+    /** Return the settings of the rotors that do not rotate (the
+     *  reflector first), which stepping never changes. */
+    int[] fixedSettings() {
+        return Arrays.copyOf(_setting, _firstMoving);
+    }
+
+    /** Return the alphabet of this engine. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the index of CH in the alphabet, which must contain it. */
+    int toInt(char ch) {
+        int k = _alphabet.toInt(ch);
+        if (k < 0) {
+            throw error("Character '%c' is not in the alphabet.", ch);
+        }
+        return k;
+    }
+
+    /** The alphabet of this engine. */
+    private final Alphabet _alphabet;
+    /** The size of the alphabet. */
+    private final int _size;
+    /** The number of rotor slots, including the reflector. */
+    private final int _slots;
+    /** The leftmost slot holding a rotating rotor. */
+    private final int _firstMoving;
+    /** The substitution of the rotor in each slot at its 0 setting. */
+    private final int[][] _forward;
+    /** The inverse of each substitution in _forward. */
+    private final int[][] _inverse;
+    /** For each slot, whether its rotor has a notch at each setting. */
+    private final boolean[][] _notch;
+    /** The plugboard substitution (the identity if there is none). */
+    private final int[] _plugboard;
+    /** For each slot and setting of its rotor, the number of advances to
+     *  its next notch (see untilNotch). */
+    private final int[][] _untilNotch;
+    /** The current setting of the rotor in each slot. */
+    private final int[] _setting;
+    /** The setting less the ring setting of each slot, modulo size. */
+    private final int[] _offset;
+}
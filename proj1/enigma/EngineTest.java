@@ -0,0 +1,308 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the compiled Engine of a Machine.
+ *  @author Pavel Gladkevich
+ */
+public class EngineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Names of the naval moving rotors. */
+    private static final String[] MOVING =
+        { "I", "II", "III", "IV", "V", "VI", "VII", "VIII" };
+    /** Notches of the naval moving rotors. */
+    private static final String[] NOTCHES =
+        { "Q", "E", "V", "J", "Z", "ZM", "ZM", "ZM" };
+
+    /** Return a fresh set of the naval rotors. */
+    private ArrayList<Rotor> navalRotors() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        for (int i = 0; i < MOVING.length; i += 1) {
+            rotors.add(new MovingRotor(MOVING[i],
+                    new Permutation(NAVALA.get(MOVING[i]), UPPER),
+                    NOTCHES[i]));
+        }
+        rotors.add(new FixedRotor("Beta",
+                new Permutation(NAVALA.get("Beta"), UPPER)));
+        rotors.add(new FixedRotor("Gamma",
+                new Permutation(NAVALA.get("Gamma"), UPPER)));
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        rotors.add(new Reflector("C", new Permutation(NAVALA.get("C"), UPPER)));
+        return rotors;
+    }
+
+    /** Return the result of converting C with ROTORS (ROTORS[0] is the
+     *  reflector, the last PAWLS rotate) and PLUGBOARD, stepping the
+     *  rotors first, one Rotor method at a time. This is the conversion
+     *  the Engine must reproduce. */
+    private static int reference(Rotor[] rotors, int pawls,
+                                 Permutation plugboard, int c) {
+        int n = rotors.length;
+        boolean[] willRotate = new boolean[n];
+        willRotate[n - 1] = true;
+        for (int i = n - 1; i > n - pawls; i -= 1) {
+            if (rotors[i].atNotch()) {
+                willRotate[i] = true;
+                willRotate[i - 1] = true;
+            }
+        }
+        for (int i = 1; i < n; i += 1) {
+            if (willRotate[i]) {
+                rotors[i].advance();
+            }
+        }
+        c = plugboard.permute(c);
+        for (int i = n - 1; i >= 0; i -= 1) {
+            c = rotors[i].convertForward(c);
+        }
+        for (int i = 1; i < n; i += 1) {
+            c = rotors[i].convertBackward(c);
+        }
+        return plugboard.permute(c);
+    }
+
+    /** Return a random string of N letters of UPPER_STRING from RANDOM. */
+    private static String letters(int n, Random random) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < n; i += 1) {
+            result.append(UPPER_STRING.charAt(random.nextInt(26)));
+        }
+        return result.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkMatchesRotorByRotor() {
+        Random random = new Random(61);
+        for (int trial = 0; trial < 40; trial += 1) {
+            int pawls = 2 + trial % 2;
+            String[] names = new String[5];
+            names[0] = random.nextBoolean() ? "B" : "C";
+            names[1] = random.nextBoolean() ? "Beta" : "Gamma";
+            names[2] = names[1].equals("Beta") ? "Gamma" : "Beta";
+            ArrayList<String> moving = new ArrayList<>();
+            for (String name : MOVING) {
+                moving.add(name);
+            }
+            for (int i = 5 - pawls; i < 5; i += 1) {
+                names[i] = moving.remove(random.nextInt(moving.size()));
+            }
+            Machine machine = new Machine(UPPER, 5, pawls, navalRotors());
+            Machine reference = new Machine(UPPER, 5, pawls, navalRotors());
+            String settings = letters(4, random), rings = letters(4, random);
+            Permutation plugboard =
+                new Permutation("(" + letters(1, random) + ")", UPPER);
+            if (trial % 2 == 0) {
+                plugboard = new Permutation("(AQ) (HX) (TZ) (BM)", UPPER);
+            }
+            for (Machine m : new Machine[] { machine, reference }) {
+                m.insertRotors(names);
+                m.setRotors(settings);
+                m.setRotorRings(rings);
+                m.setPlugboard(plugboard);
+            }
+            Rotor[] slots = new Rotor[5];
+            for (int i = 0; i < 5; i += 1) {
+                slots[i] = reference.returnSelectedRotor(names[i]);
+            }
+            char[] in = letters(2000, random).toCharArray();
+            char[] out = new char[in.length];
+            machine.convert(in, out);
+            for (int i = 0; i < in.length; i += 1) {
+                int c = reference(slots, pawls, plugboard,
+                        UPPER_STRING.indexOf(in[i]));
+                assertEquals(msg("trial " + trial, "character %d", i),
+                        UPPER_STRING.charAt(c), out[i]);
+            }
+            assertArrayEquals(reference.returnSelectedRotorSettings(),
+                    machine.returnSelectedRotorSettings());
+        }
+    }
+
+    @Test
+    public void checkBulkAndSingleAgree() {
+        Machine bulk = new Machine(UPPER, 5, 3, navalRotors());
+        Machine single = new Machine(UPPER, 5, 3, navalRotors());
+        String[] names = { "B", "Beta", "III", "IV", "I" };
+        for (Machine m : new Machine[] { bulk, single }) {
+            m.insertRotors(names);
+            m.setRotors("AXLE");
+            m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                    UPPER));
+        }
+        char[] text = "FROMHISSHOULDERHIAWATHA".toCharArray();
+        char[] out = new char[text.length];
+        bulk.convert(text, out);
+        for (int i = 0; i < text.length; i += 1) {
+            int c = single.convert(UPPER_STRING.indexOf(text[i]));
+            assertEquals(UPPER_STRING.charAt(c), out[i]);
+        }
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW", new String(out));
+    }
+
+    @Test
+    public void checkSettingsChangeBetweenCalls() {
+        Machine m = new Machine(UPPER, 5, 3, navalRotors());
+        m.insertRotors(new String[] { "B", "Beta", "I", "II", "III" });
+        m.setRotors("AAAA");
+        char[] out = new char[10];
+        m.convert("HELLOWORLD".toCharArray(), out);
+        assertEquals("ILBDAAMTAZ", new String(out));
+        m.setRotors("AAAA");
+        m.convert("ILBDAAMTAZ".toCharArray(), out);
+        assertEquals("HELLOWORLD", new String(out));
+    }
+
+    @Test
+    public void checkParallelMatchesSequential() {
+        Random random = new Random(1939);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        String[][] choices = {
+            { "B", "Beta", "III", "IV", "I" },
+            { "C", "Gamma", "VI", "VII", "VIII" },
+            { "B", "Gamma", "Beta", "VIII", "II" },
+            { "C", "Beta", "V" },
+        };
+        int[] numPawls = { 3, 3, 2, 1 };
+        try {
+            for (int t = 0; t < choices.length; t += 1) {
+                String[] names = choices[t];
+                int pawls = numPawls[t];
+                Machine parallel =
+                    new Machine(UPPER, names.length, pawls, navalRotors());
+                Machine sequential =
+                    new Machine(UPPER, names.length, pawls, navalRotors());
+                String settings = letters(names.length - 1, random);
+                String rings = letters(names.length - 1, random);
+                for (Machine m : new Machine[] { parallel, sequential }) {
+                    m.insertRotors(names);
+                    m.setRotors(settings);
+                    m.setRotorRings(rings);
+                    m.setPlugboard(new Permutation("(AQ) (HX)", UPPER));
+                }
+                int length = 3 * Machine.PARALLEL_SLICE + 777;
+                char[] in = letters(length + 3, random).toCharArray();
+                char[] expected = new char[length + 5];
+                char[] actual = new char[length + 5];
+                sequential.convert(in, 3, expected, 5, length);
+                parallel.convert(in, 3, actual, 5, length, pool);
+                assertArrayEquals(expected, actual);
+                assertArrayEquals(sequential.returnSelectedRotorSettings(),
+                        parallel.returnSelectedRotorSettings());
+                sequential.convert(in, 0, expected, 0, 100);
+                parallel.convert(in, 0, actual, 0, 100, pool);
+                assertArrayEquals(expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void checkStepTableMatchesEngine() {
+        Random random = new Random(1918);
+        String[][] choices = {
+            { "B", "Beta", "III", "IV", "I" },
+            { "C", "Gamma", "VI", "VII", "VIII" },
+            { "B", "Gamma", "Beta", "VIII", "II" },
+            { "C", "Beta", "V" },
+        };
+        int[] numPawls = { 3, 3, 2, 1 };
+        for (int t = 0; t < choices.length; t += 1) {
+            String[] names = choices[t];
+            Machine tabled =
+                new Machine(UPPER, names.length, numPawls[t], navalRotors());
+            Machine engine =
+                new Machine(UPPER, names.length, numPawls[t], navalRotors());
+            tabled.useStepTable(true);
+            String settings = letters(names.length - 1, random);
+            String rings = letters(names.length - 1, random);
+            for (Machine m : new Machine[] { tabled, engine }) {
+                m.insertRotors(names);
+                m.setRotors(settings);
+                m.setRotorRings(rings);
+                m.setPlugboard(new Permutation("(AQ) (HX)", UPPER));
+            }
+            char[] in = letters(40000, random).toCharArray();
+            char[] expected = new char[in.length];
+            char[] actual = new char[in.length];
+            for (int i = 0; i < in.length; i += 1000) {
+                if (i % 7000 == 0) {
+                    String reset = letters(names.length - 1, random);
+                    tabled.setRotors(reset);
+                    engine.setRotors(reset);
+                }
+                int c = UPPER_STRING.indexOf(in[i]);
+                expected[i] = UPPER_STRING.charAt(engine.convert(c));
+                actual[i] = UPPER_STRING.charAt(tabled.convert(c));
+                engine.convert(in, i + 1, expected, i + 1, 999);
+                tabled.convert(in, i + 1, actual, i + 1, 999);
+                assertArrayEquals(engine.returnSelectedRotorSettings(),
+                        tabled.returnSelectedRotorSettings());
+            }
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void checkStepTableFixedRotorSetting() {
+        String[] names = { "B", "Beta", "III", "IV", "I" };
+        Machine tabled = new Machine(UPPER, 5, 3, navalRotors());
+        Machine engine = new Machine(UPPER, 5, 3, navalRotors());
+        tabled.useStepTable(true);
+        tabled.insertRotors(names);
+        engine.insertRotors(names);
+        char[] in = "HELLOWORLDHELLOWORLD".toCharArray();
+        char[] expected = new char[in.length];
+        char[] actual = new char[in.length];
+        tabled.setRotors("AXLE");
+        tabled.convert(in, actual);
+        tabled.setRotors("BXLE");
+        engine.setRotors("BXLE");
+        tabled.convert(in, actual);
+        engine.convert(in, expected);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void checkStepTablePeriod() {
+        ArrayList<Rotor> rotors = navalRotors();
+        Machine m = new Machine(UPPER, 5, 3, rotors);
+        String[] names = { "B", "Beta", "III", "IV", "I" };
+        m.insertRotors(names);
+        m.setRotors("AXLE");
+        Rotor[] slots = new Rotor[names.length];
+        for (int i = 0; i < names.length; i += 1) {
+            slots[i] = m.returnSelectedRotor(names[i]);
+        }
+        Engine engine = new Engine(UPPER, slots, 3, null);
+        engine.load(slots);
+        StepTable table = StepTable.build(engine);
+        assertEquals(26 * 25 * 26, table.period());
+        assertTrue(table.length() >= table.period());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkCharacterNotInAlphabet() {
+        Machine m = new Machine(UPPER, 5, 3, navalRotors());
+        m.insertRotors(new String[] { "B", "Beta", "I", "II", "III" });
+        m.setRotors("AAAA");
+        m.convert("HELLO!".toCharArray(), new char[6]);
+    }
+}
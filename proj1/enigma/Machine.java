@@ -3,7 +3,10 @@ package enigma;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static enigma.EnigmaException.*;
 
@@ -24,6 +27,35 @@ class Machine {
         _selectedRotors = new HashMap<>();
     }
 
+    /** A new Enigma machine like TEMPLATE, with the same alphabet, slots,
+     *  pawls and kinds of rotor, but with its own copy of each rotor, so
+     *  that it can be set up and used independently of TEMPLATE. No rotors
+     *  are inserted. */
+    Machine(Machine template) {
+        this(template._alphabet, template._numRotors, template._pawls,
+             new ArrayList<>());
+        for (Rotor r : template._allRotors) {
+            if (r.reflecting()) {
+                _allRotors.add(new Reflector(r.name(), r.permutation()));
+            } else if (r.rotates()) {
+                _allRotors.add(new MovingRotor(r.name(), r.permutation(),
+                                               r.notches()));
+            } else {
+                _allRotors.add(new FixedRotor(r.name(), r.permutation()));
+            }
+        }
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return all the rotors available to me. */
+    List<Rotor> availableRotors() {
+        return _allRotors;
+    }
+
     /** Return the number of rotor slots I have. */
     int numRotors() {
         return _numRotors;
@@ -39,6 +71,8 @@ class Machine {
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
         int S = 0; int P = 0; _rotorOrder = rotors;
+        _slots = new Rotor[rotors.length];
+        _engine = null; _stepTable = null; _stepTableTooLarge = false;
         if (rotors.length != numRotors()) {
             throw error("Incorrect number of rotors was provided "
                     + "as input into insertRotors");
@@ -57,12 +91,14 @@ class Machine {
                         if (!curr.reflecting()) {
                             throw error("First rotor != reflector.");
                         }
-                        _selectedRotors.put(name, curr); S += 1; break;
+                        _selectedRotors.put(name, curr); _slots[i] = curr;
+                        S += 1; break;
                     } else if (i == numRotors() - 1) {
                         if (!curr.rotates()) {
                             throw error("S rotor != moving.");
                         }
-                        _selectedRotors.put(name, curr); S += 1; P += 1; break;
+                        _selectedRotors.put(name, curr); _slots[i] = curr;
+                        S += 1; P += 1; break;
                     } else {
                         if (i + 1 <= _numRotors - _pawls) {
                             if (curr.rotates() || curr.reflecting()) {
@@ -70,13 +106,14 @@ class Machine {
                                         + " or moving rotor where it should "
                                         + "be fixed.");
                             }
-                            _selectedRotors.put(name, curr); S += 1; break;
+                            _selectedRotors.put(name, curr);
+                            _slots[i] = curr; S += 1; break;
                         }
                         if (!curr.rotates()) {
                             throw error("There was a non-moving"
                                     + "rotor where it should be moving rotor.");
                         }
-                        _selectedRotors.put(name, curr);
+                        _selectedRotors.put(name, curr); _slots[i] = curr;
                         S += 1; P += 1; break;
                     }
                 }
@@ -143,69 +180,203 @@ class Machine {
             }
             _selectedRotors.get(cRNAME).setRING(pLetter);
         }
+        _stepTable = null; _stepTableTooLarge = false;
     }
 
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
         _plugboard = plugboard;
+        _engine = null; _stepTable = null; _stepTableTooLarge = false;
+    }
+
+    /** Convert with a StepTable iff ON. The table is built when first
+     *  needed for the current rotors, rings and plugboard, and is used for
+     *  as long as they stay the same and the rotors are only set to
+     *  settings in its sequence; it is not used if it would be larger than
+     *  StepTable.MAX_ENTRIES entries. Building a table for the naval
+     *  rotors takes tens of milliseconds, so it pays only for messages of
+     *  a million or so characters. */
+    void useStepTable(boolean on) {
+        _useStepTable = on;
+    }
+
+    /** Return my StepTable, with _position set to the position in it of
+     *  the current settings of my rotors, or null if I am not to use one or
+     *  it would be too large. */
+    private StepTable stepTable() {
+        if (!_useStepTable || _stepTableTooLarge) {
+            return null;
+        }
+        if (_stepTable != null && !_stepTable.at(_position, _slots)) {
+            _position = 0;
+        }
+        if (_stepTable == null || !_stepTable.at(_position, _slots)) {
+            Engine engine = engine();
+            engine.load(_slots);
+            _stepTable = StepTable.build(engine);
+            _stepTableTooLarge = _stepTable == null;
+            _position = 0;
+        }
+        return _stepTable;
+    }
+
+    /** Return the Engine compiled from my current rotors and plugboard,
+     *  compiling it first if they have changed since it was last used. */
+    private Engine engine() {
+        if (_engine == null) {
+            if (_slots == null) {
+                throw error("No rotors have been inserted.");
+            }
+            _engine = new Engine(_alphabet, _slots, _pawls, _plugboard);
+        }
+        return _engine;
     }
 
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
-
      *  the machine. */
     int convert(int c) {
-        boolean[] willRotate = new boolean[_numRotors];
-        willRotate[_numRotors - 1] = true;
-        for (int i = _numRotors - 1; i > (_numRotors - _pawls); i -= 1) {
-            Rotor r = _selectedRotors.get(_rotorOrder[i]);
-            if (r.atNotch()) {
-                willRotate[i] = true;
-                willRotate[i - 1] = true;
-            }
+        StepTable table = stepTable();
+        if (table != null) {
+            c = table.convert(_position, c);
+            _position = table.next(_position);
+            table.store(_position, _slots);
+            return c;
         }
-        for (int i = 1; i < _rotorOrder.length; i += 1) {
-            if (willRotate[i]) {
-                _selectedRotors.get(_rotorOrder[i]).advance();
-            }
+        Engine engine = engine();
+        engine.load(_slots);
+        c = engine.convert(c);
+        engine.store(_slots);
+        return c;
+    }
+
+    /** Convert the characters of IN into OUT, which must be at least as
+     *  long, advancing the machine before each character. Every character
+     *  of IN must be in my alphabet. */
+    void convert(char[] in, char[] out) {
+        convert(in, 0, out, 0, in.length);
+    }
+
+    /** Convert the LENGTH characters of IN starting at INSTART into OUT
+     *  starting at OUTSTART, advancing the machine before each character.
+     *  Every character converted must be in my alphabet. */
+    void convert(char[] in, int inStart, char[] out, int outStart,
+                 int length) {
+        StepTable table = stepTable();
+        if (table != null) {
+            _position = table.convert(in, inStart, out, outStart, length,
+                                      _position);
+            table.store(_position, _slots);
+            return;
         }
-        if (_plugboard != null) {
-            c = _plugboard.permute(c);
+        Engine engine = engine();
+        engine.load(_slots);
+        try {
+            engine.convert(in, inStart, out, outStart, length);
+        } finally {
+            engine.store(_slots);
         }
+    }
 
-        for (int i = _rotorOrder.length; i > 0; i -= 1) {
-            c = _selectedRotors.get(_rotorOrder[i - 1]).convertForward(c);
-        }
-        for (int i = 1; i < _rotorOrder.length; i += 1) {
-            c = _selectedRotors.get(_rotorOrder[i]).convertBackward(c);
+    /** Convert the LENGTH characters of IN starting at INSTART into OUT
+     *  starting at OUTSTART, just as convert(IN, INSTART, OUT, OUTSTART,
+     *  LENGTH) does, but in slices of PARALLEL_SLICE characters converted
+     *  in parallel on POOL. The rotor settings at the start of each slice
+     *  are found first, by Engine.skip, which steps the rotors without
+     *  converting anything and is many times faster than conversion; the
+     *  slices then need not wait for one another, and the output is the
+     *  same as converting in sequence. If a character is not in my
+     *  alphabet, my settings afterwards are unspecified. */
+    void convert(char[] in, int inStart, char[] out, int outStart,
+                 int length, ForkJoinPool pool) {
+        if (length <= PARALLEL_SLICE) {
+            convert(in, inStart, out, outStart, length);
+            return;
         }
-        if (_plugboard != null) {
-            c = _plugboard.permute(c);
+        Engine engine = engine();
+        engine.load(_slots);
+        Engine[] starts =
+            new Engine[(length + PARALLEL_SLICE - 1) / PARALLEL_SLICE];
+        for (int k = 0; k < starts.length; k += 1) {
+            starts[k] = new Engine(engine);
+            engine.skip(Math.min(PARALLEL_SLICE,
+                                 length - k * PARALLEL_SLICE));
         }
-        return c;
+        pool.invoke(new Slices(starts, in, inStart, out, outStart, length,
+                               0, starts.length));
+        engine.store(_slots);
     }
 
+    /** Number of characters converted by each task of the parallel
+     *  convert. */
+    static final int PARALLEL_SLICE = 1 << 15;
 
-    /** Returns the encoding/decoding of MSG, updating the state of
-     *  the rotors accordingly. */
-    String convert(String msg) {
-        ArrayList<Character> converted = new ArrayList<Character>();
-        String[] message = msg.split(" ");
-        StringBuilder msgOUTPUT = new StringBuilder();
-        for (String word : message) {
-            for (int i = 0; i < word.length(); i += 1) {
-                int k = this._alphabet.toInt(word.charAt(i));
-                int cINT = this.convert(k);
-                Character c = this._alphabet.toChar(cINT);
-                converted.add(c);
+    /** The conversion of a range of the slices of a message, split in
+     *  halves until there is a single slice. */
+    private static class Slices extends RecursiveAction {
+
+        /** Convert slices FIRST to LAST (exclusive) of the LENGTH
+         *  characters at INSTART in IN into OUT at OUTSTART, where
+         *  STARTS[K] is an engine with the settings at the start of slice
+         *  K, to be used only by the task converting slice K. */
+        Slices(Engine[] starts, char[] in, int inStart, char[] out,
+               int outStart, int length, int first, int last) {
+            _starts = starts;
+            _in = in;
+            _inStart = inStart;
+            _out = out;
+            _outStart = outStart;
+            _length = length;
+            _first = first;
+            _last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (_last - _first == 1) {
+                int from = _first * PARALLEL_SLICE;
+                _starts[_first].convert(_in, _inStart + from, _out,
+                    _outStart + from, Math.min(PARALLEL_SLICE,
+                                               _length - from));
+            } else {
+                int mid = (_first + _last) >>> 1;
+                invokeAll(new Slices(_starts, _in, _inStart, _out,
+                                     _outStart, _length, _first, mid),
+                          new Slices(_starts, _in, _inStart, _out,
+                                     _outStart, _length, mid, _last));
             }
         }
 
-        for (int i = 0; i < converted.size(); i += 1) {
+        /** The engine to convert each slice with. */
+        private final Engine[] _starts;
+        /** The message. */
+        private final char[] _in;
+        /** Start of the message in _in. */
+        private final int _inStart;
+        /** Destination of the converted message. */
+        private final char[] _out;
+        /** Start of the converted message in _out. */
+        private final int _outStart;
+        /** Length of the message. */
+        private final int _length;
+        /** The first of my slices. */
+        private final int _first;
+        /** The slice after my last one. */
+        private final int _last;
+    }
+
+    /** Returns the encoding/decoding of MSG, updating the state of
+     *  the rotors accordingly. */
+    String convert(String msg) {
+        char[] letters = msg.replace(" ", "").toCharArray();
+        convert(letters, letters);
+        StringBuilder msgOUTPUT =
+            new StringBuilder(letters.length + letters.length / 5);
+        for (int i = 0; i < letters.length; i += 1) {
             if (i % 5 == 0 && i != 0) {
-                msgOUTPUT.append(" ");
+                msgOUTPUT.append(' ');
             }
-            msgOUTPUT.append(converted.get(i));
+            msgOUTPUT.append(letters[i]);
         }
         return msgOUTPUT.toString();
     }
@@ -226,4 +397,20 @@ class Machine {
     private String[] _rotorOrder;
     /** Plugboard as a Permutation object. */
     private Permutation _plugboard;
+    /** The rotors in my slots, from the reflector (0) to the rightmost. */
+    private Rotor[] _slots;
+    /** My rotors and plugboard compiled for fast conversion, or null if
+     *  they have changed since it was compiled. */
+    private Engine _engine;
+    /** True iff I am to convert with a StepTable. */
+    private boolean _useStepTable;
+    /** The StepTable of my rotors, rings and plugboard, or null if there
+     *  is none yet or they have changed since it was built. */
+    private StepTable _stepTable;
+    /** The position in _stepTable of the current settings of my rotors,
+     *  unless they have been set since. */
+    private int _position;
+    /** True iff the StepTable of my rotors, rings and plugboard would be
+     *  too large. */
+    private boolean _stepTableTooLarge;
 }
@@ -2,11 +2,20 @@ package enigma;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
-import java.util.Scanner;
 
 import static enigma.EnigmaException.*;
 
@@ -43,9 +52,9 @@ public final class Main {
         _config = getInput(args[0]);
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = getReader(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = new InputStreamReader(System.in);
         }
 
         if (args.length > 2) {
@@ -55,11 +64,23 @@ public final class Main {
         }
     }
 
-    /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
+    /** Return a Tokenizer of the contents of the file named NAME. */
+    private Tokenizer getInput(String name) {
         try {
-            return new Scanner(new File(name));
-        } catch (IOException excp) {
+            return new Tokenizer(new String(Files.readAllBytes(
+                    Paths.get(name)), Charset.defaultCharset()));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a Reader of the file named NAME, which reads through a
+     *  FileChannel. */
+    private Reader getReader(String name) {
+        try {
+            return Channels.newReader(FileChannel.open(Paths.get(name)),
+                    Charset.defaultCharset());
+        } catch (IOException | InvalidPathException excp) {
             throw error("could not open %s", name);
         }
     }
@@ -75,32 +96,19 @@ public final class Main {
 
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output.
-     *  Need to call printMessageLine and then send the results to _output
+     *  results to _output. The input is streamed through a Pipeline, so
+     *  it is never held in memory whole.
      *  There should be a newline at the end of every output */
     private void process() {
         Machine m = readConfig();
+        Writer output = new OutputStreamWriter(_output);
         try {
-            if (!_input.hasNext("\\*")) {
-                throw error("There was a message without a "
-                        + "configuration");
-            }
-            while (_input.hasNextLine()) {
-                String curr = _input.nextLine().trim();
-                if (curr.compareTo("") == 0) {
-                    _output.println();
-                } else if ("*".compareTo("" + curr.charAt(0)) == 0) {
-                    this.setUp(m, curr);
-                } else {
-                    _output.println(m.convert(curr));
-                }
-            }
-        } catch (NoSuchElementException excp) {
-            throw error("Input file truncated");
+            new Pipeline(m, _input, output, line -> setUp(m, line)).run();
+        } catch (IOException excp) {
+            throw error("could not process input: %s", excp.getMessage());
         }
     }
 
-
     /** Return an Enigma machine configured from the contents of configuration
      *  file _config.
      *
@@ -109,7 +117,7 @@ public final class Main {
      *  a consistent format and we should check for everything on one line,
      *  everything on separate lines, some things on the same,
      *  some things separate, etc. Make sure we have error checks. */
-    private Machine readConfig() {
+    Machine readConfig() {
         try {
             _alphabet = new Alphabet(_config.next());
             _allRotors = new ArrayList<Rotor>();
@@ -120,14 +128,15 @@ public final class Main {
             }
             for (int i = 0; i < 2; i += 1) {
                 if (!_config.hasNextInt()) {
-                    throw error("Either S or P were not set right");
+                    throw _config.errorAtNext("Either S or P were not set "
+                            + "right");
                 }
                 if (i == 0) {
                     _S = _config.nextInt();
                 } else {
                     _P = _config.nextInt();
                     if (_P >= _S || _P < 1 || _S < 2) {
-                        throw error("Either S or P were not right");
+                        throw _config.error("Either S or P were not right");
                     }
                 }
             }
@@ -137,7 +146,7 @@ public final class Main {
             checkRotorConfiguration();
             return new Machine(_alphabet, _S, _P, _allRotors);
         } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
+            throw _config.errorAtNext("configuration file truncated");
         }
     }
 
@@ -146,28 +155,28 @@ public final class Main {
         try {
             String name = _config.next();
             if (name.contains("(") || name.contains(")")) {
-                throw error("Rotor name can't have '(' or ')'.");
+                throw _config.error("Rotor name can't have '(' or ')'.");
             }
             String rTNOTCH = _config.next();
             String rTYPE = rTNOTCH.substring(0, 1);
             if (!"MNR".contains(rTYPE)) {
-                throw error("Not a valid type of rotor. Must be"
+                throw _config.error("Not a valid type of rotor. Must be"
                         + "either 'M', 'N', or 'R'.");
             }
             if ("NR".contains(rTYPE) && rTNOTCH.length() > 1) {
-                throw error("Only M rotors can have notches.");
+                throw _config.error("Only M rotors can have notches.");
             }
             String notches = ""; StringBuilder cycles = new StringBuilder();
             if (rTNOTCH.length() > 1) {
                 notches = rTNOTCH.substring(1);
                 for (int i = 0; i < notches.length(); i += 1) {
                     if (!this._alphabet.contains(notches.charAt(i))) {
-                        throw error("One of the notches was not in"
-                                + "the alphabet.");
+                        throw _config.error("One of the notches was not "
+                                + "in the alphabet.");
                     }
                 }
             }
-            while (_config.hasNext(" *\\((.*?)\\) *")) {
+            while (_config.hasNextCycles()) {
                 cycles.append(_config.next());
             }
             if (rTYPE.compareTo("R") == 0) {
@@ -181,7 +190,7 @@ public final class Main {
                         this._alphabet), notches);
             }
         } catch (NoSuchElementException excp) {
-            throw error("bad rotor description");
+            throw _config.errorAtNext("bad rotor description");
         }
     }
 
@@ -219,9 +228,9 @@ public final class Main {
 
     /** Set M according to the specification given on SETTINGS,
      *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
+    void setUp(Machine M, String settings) {
+        Tokenizer s = new Tokenizer(settings);
         try {
-            Scanner s = new Scanner(settings);
             s.next();
             String[] rotors = new String[_S];
             for (int i = 0; i < _S; i += 1) {
@@ -230,15 +239,11 @@ public final class Main {
             String setSTRING = s.next();
             String setRINGS = "";
             StringBuilder cycles = new StringBuilder();
-            if (s.hasNext(" *\\((.*?)\\) *")) {
-                while (s.hasNext(" *\\((.*?)\\) *")) {
-                    cycles.append(s.next());
-                }
-            } else if (s.hasNextLine()) {
+            if (!s.hasNextCycles() && s.hasNext()) {
                 setRINGS = s.next();
-                while (s.hasNext(" *\\((.*?)\\) *")) {
-                    cycles.append(s.next());
-                }
+            }
+            while (s.hasNextCycles()) {
+                cycles.append(s.next());
             }
             M.insertRotors(rotors);
             M.setRotors(setSTRING);
@@ -252,7 +257,7 @@ public final class Main {
             }
             M.setPlugboard(new Permutation(cycles.toString(), this._alphabet));
         } catch (NoSuchElementException excp) {
-            throw error("Input settings string truncated");
+            throw s.errorAtNext("Input settings string truncated");
         }
     }
 
@@ -261,9 +266,9 @@ public final class Main {
     /** Rotors used in this machine. */
     private  ArrayList<Rotor> _allRotors;
     /** Source of input messages. */
-    private Scanner _input;
+    private Reader _input;
     /** Source of machine configuration. */
-    private Scanner _config;
+    private Tokenizer _config;
     /** File for encoded/decoded messages. */
     private PrintStream _output;
     /** Number of Rotors. */
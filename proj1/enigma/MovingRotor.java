@@ -41,6 +41,17 @@ class MovingRotor extends Rotor {
         return _notches.contains(cposn);
     }
 
+    @Override
+    String notches() {
+        StringBuilder result = new StringBuilder();
+        if (_notches != null) {
+            for (char c : _notches) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
     /** The notches of the rotor. */
     private ArrayList<Character> _notches;
 
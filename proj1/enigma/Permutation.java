@@ -1,9 +1,7 @@
 package enigma;
 
 import static enigma.EnigmaException.*;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.Arrays;
 
 /** Represents a permutation of a range of integers starting at 0 corresponding
  *  to the characters of an alphabet.
@@ -21,43 +19,55 @@ class Permutation {
         cycles = cycles.replace(")(", ") (").replace(
                 "(", "").replace(")",
                 "").trim().replaceAll(" +", " ");
-        _cycles = cycles.split(" ");
-        _pHM = new HashMap<Integer, Integer>();
-        for (String e : _cycles) {
+        String[] names = cycles.isEmpty() ? new String[0] : cycles.split(" ");
+        int n = alphabet.size();
+        _forward = new int[n];
+        _inverse = new int[n];
+        Arrays.fill(_forward, -1);
+        for (String e : names) {
+            int[] cycle = new int[e.length()];
             for (int i = 0; i < e.length(); i += 1) {
                 if (!alphabet.contains(e.charAt(i))) {
                     throw error("Character in cycle not found"
                             + "in  the alphabet.");
                 }
+                cycle[i] = alphabet.toInt(e.charAt(i));
             }
-            addCycle(e);
+            addCycle(cycle);
         }
-        for (Map.Entry entry : alphabet.returnHM().entrySet()) {
-            if (!_pHM.containsKey(entry.getKey())) {
-                _pHM.put((int) entry.getKey(), (int) entry.getKey());
+        _fixedPoints = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (_forward[i] == -1) {
+                _forward[i] = i;
             }
+            if (_forward[i] == i) {
+                _fixedPoints += 1;
+            }
+            _inverse[_forward[i]] = i;
         }
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        for (int i = 0; i < cycle.length(); i += 1) {
-            int k = this._alphabet.toInt(cycle.charAt(i));
-            if (i == cycle.length() - 1) {
-                int v = this._alphabet.toInt(cycle.charAt(0));
-                _pHM.put(k, v);
-            } else {
-                _pHM.put(k, this._alphabet.toInt(cycle.charAt(i + 1)));
+     *  the indices of c0c1...cm. */
+    private void addCycle(int[] cycle) {
+        for (int i = 0; i < cycle.length; i += 1) {
+            if (_forward[cycle[i]] != -1) {
+                throw error("Character '%c' appears in more than one cycle.",
+                        _alphabet.toChar(cycle[i]));
             }
+            _forward[cycle[i]] = cycle[(i + 1) % cycle.length];
         }
     }
 
     /** Return the value of P modulo the size of this permutation. */
     final int wrap(int p) {
-        int r = p % size();
+        int n = _forward.length;
+        if (p >= 0 && p < n) {
+            return p;
+        }
+        int r = p % n;
         if (r < 0) {
-            r += size();
+            r += n;
         }
         return r;
     }
@@ -70,20 +80,13 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        int pWrap = wrap(p);
-        return _pHM.get(pWrap);
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        int cWrap = wrap(c);
-        for (Map.Entry entry : _pHM.entrySet()) {
-            if (Objects.equals(cWrap, entry.getValue())) {
-                return (int) entry.getKey();
-            }
-        }
-        return -1;
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
@@ -109,18 +112,15 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        for (Map.Entry entry : _pHM.entrySet()) {
-            if (Objects.equals(entry.getKey(), entry.getValue())) {
-                return false;
-            }
-        }
-        return true;
+        return _fixedPoints == 0;
     }
 
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
-    /** Mapping of every letter to its converted letter. */
-    private HashMap<Integer, Integer> _pHM;
-    /** Cycles that are input as a part of the permutation. */
-    private String[] _cycles;
+    /** The index each index is mapped to. */
+    private int[] _forward;
+    /** The index each index is mapped from: the inverse of _forward. */
+    private int[] _inverse;
+    /** The number of indices that this permutation maps to themselves. */
+    private int _fixedPoints;
 }
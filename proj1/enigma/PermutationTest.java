@@ -65,6 +65,25 @@ public class PermutationTest {
         assertEquals(25, a.toInt('Z'));
     }
 
+    @Test
+    public void testAlphabetLookups() {
+        Alphabet a = getNewAlphabet("z0_é中A");
+        assertEquals(6, a.size());
+        for (int i = 0; i < a.size(); i += 1) {
+            assertEquals(i, a.toInt(a.toChar(i)));
+            assertTrue(a.contains(a.toChar(i)));
+        }
+        assertEquals(4, a.toInt('中'));
+        assertFalse(a.contains('B'));
+        assertFalse(a.contains('丮'));
+        assertEquals(-1, a.toInt('￿'));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testAlphabetDuplicate() {
+        getNewAlphabet("ABCA");
+    }
+
     @Test
     public void checkIdTransform() {
         perm = new Permutation("", UPPER);
@@ -222,4 +241,20 @@ public class PermutationTest {
         assertFalse(p8.derangement());
     }
 
+    @Test
+    public void testInverseOfNavalRotors() {
+        for (String cycles : NAVALA.values()) {
+            perm = getNewPermutation(cycles, UPPER);
+            for (int i = -26; i < 52; i += 1) {
+                assertEquals(perm.wrap(i), perm.invert(perm.permute(i)));
+                assertEquals(perm.wrap(i), perm.permute(perm.invert(i)));
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testCharacterInTwoCycles() {
+        getNewPermutation("(AB) (CA)", getNewAlphabet("ABCD"));
+    }
+
 }
@@ -0,0 +1,227 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+import static enigma.EnigmaException.*;
+
+/** The message-processing loop of the enigma simulator, done as a stream.
+ *  Input is read through one large CharBuffer and each message line is
+ *  converted in fixed-size chunks with Machine.convert(char[], ...) and
+ *  written out in groups of five as it goes. No line is ever held whole,
+ *  so memory use does not depend on the size of the input (or of any one
+ *  line in it), and no String, boxed Character or list is made per
+ *  message character.
+ *
+ *  The output is exactly that of converting each line with
+ *  Machine.convert(String): lines are trimmed; a line starting with '*'
+ *  is handed whole to the settings handler; an empty line is copied as
+ *  an empty line; in any other line the spaces are dropped and the rest is
+ *  converted and grouped, starting afresh on each line.
+ *  @author Pavel Gladkevich
+ */
+class Pipeline {
+
+    /** Number of characters read from the input at a time. */
+    static final int BUFFER_SIZE = 1 << 16;
+    /** Number of message characters converted at a time. */
+    static final int CHUNK_SIZE = 1 << 13;
+
+    /** A pipeline converting the messages read from INPUT with MACHINE and
+     *  writing the results to OUTPUT. Settings lines (trimmed) are passed
+     *  to SETTINGS, which is expected to set MACHINE up accordingly. */
+    Pipeline(Machine machine, Reader input, Writer output,
+             Consumer<String> settings) {
+        _machine = machine;
+        _input = input;
+        _output = output;
+        _settings = settings;
+        _chunk = new char[CHUNK_SIZE];
+        _out = new char[2 * CHUNK_SIZE + NEWLINE.length()];
+    }
+
+    /** Process all of my input. The output is flushed, but not closed,
+     *  even if there is an error part of the way through. */
+    void run() throws IOException {
+        CharBuffer buffer = CharBuffer.allocate(BUFFER_SIZE);
+        try {
+            while (_input.read(buffer) >= 0) {
+                buffer.flip();
+                char[] chars = buffer.array();
+                for (int i = buffer.position(); i < buffer.limit(); i += 1) {
+                    accept(chars[i]);
+                }
+                buffer.clear();
+            }
+            if (_mode != LINE_START || _lineHasChars) {
+                endLine();
+            }
+            if (!_configured) {
+                throw error("There was a message without a "
+                        + "configuration");
+            }
+        } finally {
+            writeOut();
+            _output.flush();
+        }
+    }
+
+    /** Process the next input character C. */
+    private void accept(char c) {
+        if (_afterCR) {
+            _afterCR = false;
+            if (c == '\n') {
+                return;
+            }
+        }
+        if (c == '\n' || c == '\r') {
+            _afterCR = c == '\r';
+            endLine();
+            return;
+        }
+        _lineHasChars = true;
+        switch (_mode) {
+        case LINE_START:
+            if (c <= ' ') {
+                return;
+            } else if (c == '*') {
+                _mode = SETTINGS;
+                _settingsLine.append(c);
+            } else {
+                if (!_configured) {
+                    throw error("There was a message without a "
+                            + "configuration");
+                }
+                _mode = MESSAGE;
+                letter(c);
+            }
+            break;
+        case SETTINGS:
+            _settingsLine.append(c);
+            break;
+        default:
+            if (c == ' ') {
+                return;
+            } else if (c < ' ') {
+                _pending.append(c);
+            } else {
+                for (int k = 0; k < _pending.length(); k += 1) {
+                    letter(_pending.charAt(k));
+                }
+                _pending.setLength(0);
+                letter(c);
+            }
+        }
+    }
+
+    /** Add C, which is part of a message, to the current chunk. */
+    private void letter(char c) {
+        if (_chunkLength == _chunk.length) {
+            convertChunk();
+        }
+        _chunk[_chunkLength] = c;
+        _chunkLength += 1;
+    }
+
+    /** Convert the current chunk and copy it to the output, grouped. */
+    private void convertChunk() {
+        if (_chunkLength == 0) {
+            return;
+        }
+        _machine.convert(_chunk, 0, _chunk, 0, _chunkLength);
+        if (_outLength + 2 * _chunkLength > _out.length) {
+            writeOut();
+        }
+        for (int i = 0; i < _chunkLength; i += 1) {
+            if (_lineLetters % 5 == 0 && _lineLetters != 0) {
+                _out[_outLength] = ' ';
+                _outLength += 1;
+            }
+            _out[_outLength] = _chunk[i];
+            _outLength += 1;
+            _lineLetters += 1;
+        }
+        _chunkLength = 0;
+    }
+
+    /** Finish the current line. */
+    private void endLine() {
+        if (_mode == SETTINGS) {
+            String line = _settingsLine.toString().trim();
+            _settingsLine.setLength(0);
+            if (!_configured && line.length() > 1
+                && !Character.isWhitespace(line.charAt(1))) {
+                throw error("There was a message without a "
+                        + "configuration");
+            }
+            _settings.accept(line);
+            _configured = true;
+        } else {
+            convertChunk();
+            if (_outLength + NEWLINE.length() > _out.length) {
+                writeOut();
+            }
+            NEWLINE.getChars(0, NEWLINE.length(), _out, _outLength);
+            _outLength += NEWLINE.length();
+        }
+        _mode = LINE_START;
+        _lineHasChars = false;
+        _lineLetters = 0;
+        _pending.setLength(0);
+    }
+
+    /** Write out the converted characters that are waiting. */
+    private void writeOut() {
+        try {
+            _output.write(_out, 0, _outLength);
+        } catch (IOException excp) {
+            throw error("could not write output: %s", excp.getMessage());
+        }
+        _outLength = 0;
+    }
+
+    /** The line separator used in the output. */
+    private static final String NEWLINE = System.lineSeparator();
+
+    /** Mode at the start of a line, before anything but whitespace. */
+    private static final int LINE_START = 0;
+    /** Mode within a settings line. */
+    private static final int SETTINGS = 1;
+    /** Mode within a message line. */
+    private static final int MESSAGE = 2;
+
+    /** The machine converting the messages. */
+    private final Machine _machine;
+    /** Source of the settings and messages. */
+    private final Reader _input;
+    /** Destination of the converted messages. */
+    private final Writer _output;
+    /** Handler of settings lines. */
+    private final Consumer<String> _settings;
+    /** Message characters waiting to be converted. */
+    private final char[] _chunk;
+    /** Number of characters in _chunk. */
+    private int _chunkLength;
+    /** Output characters waiting to be written. */
+    private final char[] _out;
+    /** Number of characters in _out. */
+    private int _outLength;
+    /** The settings line read so far. */
+    private final StringBuilder _settingsLine = new StringBuilder();
+    /** Control characters (which trim() would remove at the end of a line)
+     *  seen since the last message character on this line. */
+    private final StringBuilder _pending = new StringBuilder();
+    /** What kind of line the current line is (so far). */
+    private int _mode = LINE_START;
+    /** True iff the current line has any characters at all. */
+    private boolean _lineHasChars;
+    /** Number of message characters written for the current line. */
+    private int _lineLetters;
+    /** True iff the last character was a carriage return. */
+    private boolean _afterCR;
+    /** True iff the machine has been set up by a settings line. */
+    private boolean _configured;
+}
@@ -0,0 +1,124 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+/** The suite of all JUnit tests for the streaming Pipeline.
+ *  @author Pavel Gladkevich
+ */
+public class PipelineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** The line separator of the output. */
+    private static final String NL = System.lineSeparator();
+
+    /** Set M up as directed by the settings line SETTINGS, which here is
+     *  "*" followed by the initial positions of the rotors. */
+    private static void setUp(Machine m, String settings) {
+        m.setRotors(settings.substring(1).trim());
+    }
+
+    /** Return the output of INPUT converted by a Pipeline. */
+    private static String streamed(String input) throws IOException {
+        Machine m = Benchmark.naval();
+        StringWriter out = new StringWriter();
+        new Pipeline(m, new StringReader(input), out,
+            line -> setUp(m, line)).run();
+        return out.toString();
+    }
+
+    /** Return the output of INPUT converted one whole line at a time with
+     *  Machine.convert(String), as Main did before it used a Pipeline. */
+    private static String lineByLine(String input) {
+        Machine m = Benchmark.naval();
+        StringBuilder out = new StringBuilder();
+        for (String line : input.split("\r\n|\r|\n", -1)) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                out.append(NL);
+            } else if (line.charAt(0) == '*') {
+                setUp(m, line);
+            } else {
+                out.append(m.convert(line)).append(NL);
+            }
+        }
+        String result = out.toString();
+        if (input.isEmpty() || input.endsWith("\n")
+            || input.endsWith("\r")) {
+            result = result.substring(0, result.length() - NL.length());
+        }
+        return result;
+    }
+
+    /** Return a line of LENGTH random letters, with spaces scattered among
+     *  them, taken from RANDOM. */
+    private static String randomLine(Random random, int length) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < length; i += 1) {
+            if (random.nextInt(7) == 0) {
+                line.append(' ');
+            }
+            line.append((char) ('A' + random.nextInt(26)));
+        }
+        return line.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testShortMessages() throws IOException {
+        String input = "* AXLE\nHELLO WORLD\n\n  FROM HIS  \r\n"
+            + "SHOULDER\r* AXLE\nHELLO WORLD\nA B C D E F\n";
+        assertEquals(lineByLine(input), streamed(input));
+    }
+
+    @Test
+    public void testNoFinalNewline() throws IOException {
+        String input = "* AXLE\nHELLO WORLD";
+        assertEquals(lineByLine(input), streamed(input));
+        assertTrue(streamed(input).endsWith(NL));
+    }
+
+    @Test
+    public void testLongLines() throws IOException {
+        Random random = new Random(61);
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("* AXLE");
+        for (int length : new int[] { Pipeline.CHUNK_SIZE - 1,
+                                      Pipeline.CHUNK_SIZE,
+                                      Pipeline.CHUNK_SIZE + 1,
+                                      Pipeline.BUFFER_SIZE + 3, 1, 0 }) {
+            lines.add(randomLine(random, length));
+        }
+        lines.add("* BETA");
+        lines.add(randomLine(random, 3 * Pipeline.BUFFER_SIZE));
+        String input = String.join("\n", lines) + "\n";
+        assertEquals(lineByLine(input), streamed(input));
+        input = String.join("\r\n", lines) + "\r\n";
+        assertEquals(lineByLine(input), streamed(input));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testMessageWithoutSettings() throws IOException {
+        streamed("\nHELLO\n* AXLE\n");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testEmptyInput() throws IOException {
+        streamed("");
+    }
+
+}
@@ -55,6 +55,17 @@ class Rotor {
         _sposn = posn;
     }
 
+    /** Return my current ring setting. */
+    int ring() {
+        return _pring;
+    }
+
+    /** Return the characters at which I have notches. By default, I have
+     *  none. */
+    String notches() {
+        return "";
+    }
+
     /** Set position of Ring to PRING.  */
     void setRING(char pring) {
         Alphabet a = this.alphabet();
@@ -0,0 +1,242 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static enigma.EnigmaException.*;
+
+/** A long-running enigma service, invoked as
+ *      java enigma.Service CONFIG [THREADS]
+ *  which reads jobs from the standard input until it ends. Each job is two
+ *  lines: a settings line, as for enigma.Main, and a message line. Unlike
+ *  in the input of Main, jobs are independent of one another: each is
+ *  converted by a machine set up by its own settings line alone. For each
+ *  job, in the order the jobs were read, the service writes one line to
+ *  the standard output: the converted message in groups of five, or
+ *  "Error: " and a description of what was wrong with the job. When the
+ *  input ends, it writes the number of jobs, the throughput and the
+ *  distribution of job latencies (from reading a job to finishing it) to
+ *  the standard error.
+ *
+ *  The jobs are converted concurrently by THREADS threads (by default,
+ *  one per processor). Machines are not built per job: the configuration
+ *  is parsed once into a template Machine, of which there is a pool of
+ *  THREADS copies, each with its own rotors, and a job borrows a machine
+ *  from the pool for as long as it takes to set up and convert.
+ *  @author Pavel Gladkevich
+ */
+public final class Service {
+
+    /** Run the service as described by ARGS (see above). Exits normally
+     *  if the configuration is correct; otherwise with code 1. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 1 || args.length > 2) {
+                throw error("Usage: java enigma.Service CONFIG [THREADS]");
+            }
+            int threads = Runtime.getRuntime().availableProcessors();
+            if (args.length > 1) {
+                try {
+                    threads = Integer.parseInt(args[1]);
+                } catch (NumberFormatException excp) {
+                    throw error("Not a number of threads: %s", args[1]);
+                }
+            }
+            Main config = new Main(new String[] { args[0] });
+            Service service =
+                new Service(config.readConfig(), config::setUp, threads);
+            service.run(new BufferedReader(new InputStreamReader(System.in)),
+                        System.out, System.err);
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A service converting with copies of TEMPLATE, which SETUP sets up
+     *  according to a settings line, on THREADS threads. */
+    Service(Machine template, BiConsumer<Machine, String> setUp,
+            int threads) {
+        if (threads < 1) {
+            throw error("There must be at least one thread.");
+        }
+        _setUp = setUp;
+        _threads = threads;
+        _machines = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i += 1) {
+            _machines.add(new Machine(template));
+        }
+    }
+
+    /** Convert the jobs read from IN, writing the results to OUT and the
+     *  statistics to LOG. */
+    void run(BufferedReader in, PrintStream out, PrintStream log)
+        throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(_threads);
+        ArrayDeque<Future<Job>> pending = new ArrayDeque<>();
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                String settings = in.readLine();
+                if (settings == null) {
+                    break;
+                }
+                String message = in.readLine();
+                Job job = new Job(settings, message == null ? "" : message);
+                pending.add(executor.submit(job));
+                while (!pending.isEmpty()
+                       && (pending.size() > MAX_PENDING * _threads
+                           || pending.peek().isDone())) {
+                    finish(pending.remove(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                finish(pending.remove(), out);
+            }
+        } finally {
+            executor.shutdownNow();
+            out.flush();
+        }
+        report(System.nanoTime() - start, log);
+    }
+
+    /** Write the result of the job computed by FUTURE to OUT and record its
+     *  statistics. */
+    private void finish(Future<Job> future, PrintStream out) {
+        Job job;
+        try {
+            job = future.get();
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("job failed: %s", excp);
+        }
+        out.println(job.result());
+        if (_jobs == _latencies.length) {
+            _latencies = Arrays.copyOf(_latencies, 2 * _jobs);
+        }
+        _latencies[_jobs] = job.latency();
+        _jobs += 1;
+        _characters += job.characters();
+    }
+
+    /** Write the statistics of the jobs finished in ELAPSED nanoseconds to
+     *  LOG. */
+    private void report(long elapsed, PrintStream log) {
+        double seconds = elapsed / 1e9;
+        long[] latencies = Arrays.copyOf(_latencies, _jobs);
+        Arrays.sort(latencies);
+        log.printf("%d jobs, %d characters in %.3f s on %d threads: "
+                   + "%.0f jobs/s, %.0f characters/s%n", _jobs, _characters,
+                   seconds, _threads, _jobs / seconds,
+                   _characters / seconds);
+        if (_jobs > 0) {
+            log.printf("latency (ms): p50 %.3f, p90 %.3f, p99 %.3f, "
+                       + "max %.3f%n", percentile(latencies, 50),
+                       percentile(latencies, 90), percentile(latencies, 99),
+                       latencies[_jobs - 1] / 1e6);
+        }
+    }
+
+    /** Return the P-th percentile of the non-empty sorted LATENCIES, in
+     *  milliseconds. */
+    private static double percentile(long[] latencies, int p) {
+        int k = (int) Math.ceil(p / 100.0 * latencies.length) - 1;
+        return latencies[Math.max(k, 0)] / 1e6;
+    }
+
+    /** Return the number of jobs finished. */
+    int jobs() {
+        return _jobs;
+    }
+
+    /** One job: a settings line and the message to convert with it. */
+    private class Job implements Callable<Job> {
+
+        /** A job converting MESSAGE with a machine set up by SETTINGS. */
+        Job(String settings, String message) {
+            _settings = settings.trim();
+            _message = message.trim();
+            _submitted = System.nanoTime();
+        }
+
+        @Override
+        public Job call() throws InterruptedException {
+            Machine machine = _machines.take();
+            try {
+                if (!_settings.startsWith("*")) {
+                    throw error("Not a settings line: %s", _settings);
+                }
+                _setUp.accept(machine, _settings);
+                _result = _message.isEmpty() ? "" : machine.convert(_message);
+                _characters = _message.replace(" ", "").length();
+            } catch (EnigmaException excp) {
+                _result = "Error: " + excp.getMessage();
+            } finally {
+                _machines.put(machine);
+            }
+            _finished = System.nanoTime();
+            return this;
+        }
+
+        /** Return the converted message, or the error in the job. */
+        String result() {
+            return _result;
+        }
+
+        /** Return the number of nanoseconds from my creation to the end of
+         *  my conversion. */
+        long latency() {
+            return _finished - _submitted;
+        }
+
+        /** Return the number of characters in my message, or 0 if it was
+         *  not converted. */
+        int characters() {
+            return _characters;
+        }
+
+        /** The settings line. */
+        private final String _settings;
+        /** The message. */
+        private final String _message;
+        /** The time at which I was read. */
+        private final long _submitted;
+        /** The time at which my conversion ended. */
+        private long _finished;
+        /** The converted message, or the error. */
+        private String _result;
+        /** The number of characters converted. */
+        private int _characters;
+    }
+
+    /** Largest number of jobs, per thread, that may be waiting to be
+     *  finished before reading stops to wait for them. */
+    private static final int MAX_PENDING = 64;
+
+    /** Sets up a machine according to a settings line. */
+    private final BiConsumer<Machine, String> _setUp;
+    /** The number of threads converting jobs. */
+    private final int _threads;
+    /** The machines not in use by a job. */
+    private final BlockingQueue<Machine> _machines;
+    /** The latency of each finished job, in nanoseconds. */
+    private long[] _latencies = new long[1024];
+    /** The number of jobs finished. */
+    private int _jobs;
+    /** The number of characters converted. */
+    private long _characters;
+}
@@ -0,0 +1,93 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Random;
+
+/** The suite of all JUnit tests for the enigma Service.
+ *  @author Pavel Gladkevich
+ */
+public class ServiceTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Set M up as directed by the settings line SETTINGS, which here is
+     *  "*" followed by the initial positions of the rotors of
+     *  Benchmark.naval(). */
+    private static void setUp(Machine m, String settings) {
+        m.insertRotors(Benchmark.ROTORS);
+        m.setRotors(settings.substring(1).trim());
+        m.setRotorRings("AAAA");
+        m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                       new Alphabet()));
+    }
+
+    /** Return the output of a Service with THREADS threads given INPUT. */
+    private static String serve(String input, int threads)
+        throws IOException {
+        Service service =
+            new Service(Benchmark.naval(), ServiceTest::setUp, threads);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        service.run(new BufferedReader(new StringReader(input)),
+                    new PrintStream(out), new PrintStream(log));
+        assertTrue(log.toString().contains(service.jobs() + " jobs"));
+        return out.toString();
+    }
+
+    /** Return a string of N random letters from RANDOM. */
+    private static String letters(int n, Random random) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < n; i += 1) {
+            result.append((char) ('A' + random.nextInt(26)));
+        }
+        return result.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testJobsAreIndependentAndInOrder() throws IOException {
+        Random random = new Random(36);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        Machine machine = Benchmark.naval();
+        for (int i = 0; i < 500; i += 1) {
+            String settings = "* " + letters(4, random);
+            String message = letters(random.nextInt(300), random);
+            input.append(settings).append('\n').append(message).append('\n');
+            setUp(machine, settings);
+            expected.append(machine.convert(message))
+                .append(System.lineSeparator());
+        }
+        assertEquals(expected.toString(), serve(input.toString(), 4));
+        assertEquals(expected.toString(), serve(input.toString(), 1));
+    }
+
+    @Test
+    public void testBadJobs() throws IOException {
+        String output = serve("* AXLE\nHELLO WORLD\n* AX\nHELLO\n"
+                              + "HELLO\nWORLD\n* AXLE\nHELLO WORLD\n"
+                              + "* AXLE\nHELLO 123\n* AXLE", 3);
+        String[] lines = output.split(System.lineSeparator(), -1);
+        assertEquals(7, lines.length);
+        assertEquals(lines[0], lines[3]);
+        assertEquals(11, lines[0].length());
+        assertTrue(lines[1].startsWith("Error: "));
+        assertTrue(lines[2].startsWith("Error: "));
+        assertTrue(lines[4].startsWith("Error: "));
+        assertEquals("", lines[5]);
+    }
+}
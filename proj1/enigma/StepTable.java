@@ -0,0 +1,193 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static enigma.EnigmaException.*;
+
+/** The whole stepping sequence of a machine's rotors, from given starting
+ *  settings, with the substitution the machine performs at each step.
+ *  Since the rotating rotors have finitely many settings and each step is
+ *  determined by the settings before it, the settings reached by stepping
+ *  eventually repeat: after a (possibly empty) lead-in they go round a
+ *  loop forever. (The lead-in is there because double stepping makes some
+ *  settings impossible to return to.) A StepTable numbers the positions in
+ *  that sequence, and for each one holds the plugboard, rotors, reflector,
+ *  rotors and plugboard combined into a single table, so that converting
+ *  a character is one array read, and moving on to the next position is
+ *  an increment.
+ *
+ *  For the naval rotors with three pawls there are 16,900 positions, and
+ *  so 439,400 table entries; a StepTable is not built for sequences
+ *  longer than MAX_ENTRIES entries.
+ *  @author Pavel Gladkevich
+ */
+class StepTable {
+
+    /** Largest number of entries (positions times alphabet size) of a
+     *  StepTable. */
+    static final int MAX_ENTRIES = 1 << 22;
+
+    /** Return the StepTable starting at the current settings of ENGINE,
+     *  or null if it would have more than MAX_ENTRIES entries. ENGINE
+     *  itself is not changed. */
+    static StepTable build(Engine engine) {
+        Engine e = new Engine(engine);
+        int size = e.size(), pawls = e.pawls();
+        int maxPositions = MAX_ENTRIES / size;
+        long states = 1;
+        for (int k = 0; k < pawls; k += 1) {
+            if (states > Long.MAX_VALUE / size) {
+                return null;
+            }
+            states *= size;
+        }
+        HashMap<Long, Integer> seen = new HashMap<>();
+        char[] table = new char[Math.min(maxPositions, 1 << 10) * size];
+        char[] settings = new char[table.length / size * pawls];
+        for (int p = 0; p <= maxPositions; p += 1) {
+            long key = 0;
+            for (int k = 0; k < pawls; k += 1) {
+                key = key * size + e.setting(k);
+            }
+            Integer first = seen.putIfAbsent(key, p);
+            if (first != null) {
+                return new StepTable(e.alphabet(), pawls, e.fixedSettings(),
+                                     table, settings, p, first);
+            }
+            if (p == maxPositions) {
+                break;
+            }
+            if ((p + 1) * size > table.length) {
+                int grown = Math.min(2 * table.length / size, maxPositions);
+                table = Arrays.copyOf(table, grown * size);
+                settings = Arrays.copyOf(settings, grown * pawls);
+            }
+            for (int k = 0; k < pawls; k += 1) {
+                settings[p * pawls + k] = (char) e.setting(k);
+            }
+            e.step();
+            for (int c = 0; c < size; c += 1) {
+                table[p * size + c] = (char) e.pass(c);
+            }
+        }
+        return null;
+    }
+
+    /** A StepTable for alphabet ALPHA and PAWLS rotating rotors, the
+     *  others having the settings FIXED, whose first LENGTH positions have
+     *  the substitutions in TABLE and the settings of the rotating rotors
+     *  in SETTINGS, and which goes on from position LENGTH as from LOOP. */
+    private StepTable(Alphabet alpha, int pawls, int[] fixed, char[] table,
+                      char[] settings, int length, int loop) {
+        _alphabet = alpha;
+        _size = alpha.size();
+        _pawls = pawls;
+        _fixed = fixed;
+        _table = table;
+        _settings = settings;
+        _length = length;
+        _loop = loop;
+    }
+
+    /** Return the number of positions before the sequence repeats. */
+    int length() {
+        return _length;
+    }
+
+    /** Return the number of positions in the repeating part of the
+     *  sequence. */
+    int period() {
+        return _length - _loop;
+    }
+
+    /** Return true iff ROTORS, the rotors of the machine I was built for,
+     *  have the settings of position POSITION, the rotors that do not
+     *  rotate included (since my substitutions depend on them too). */
+    boolean at(int position, Rotor[] rotors) {
+        int first = rotors.length - _pawls;
+        for (int i = 0; i < first; i += 1) {
+            if (_fixed[i] != wrap(rotors[i].setting())) {
+                return false;
+            }
+        }
+        for (int k = 0; k < _pawls; k += 1) {
+            if (_settings[position * _pawls + k]
+                != wrap(rotors[first + k].setting())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the value of P modulo the size of the alphabet. */
+    private int wrap(int p) {
+        int r = p % _size;
+        return r < 0 ? r + _size : r;
+    }
+
+    /** Set ROTORS, the rotors of the machine I was built for, to the
+     *  settings of position POSITION. */
+    void store(int position, Rotor[] rotors) {
+        int first = rotors.length - _pawls;
+        for (int k = 0; k < _pawls; k += 1) {
+            rotors[first + k].set((int) _settings[position * _pawls + k]);
+        }
+    }
+
+    /** Convert the LENGTH characters of IN starting at INSTART into OUT
+     *  starting at OUTSTART, starting from position POSITION, and return
+     *  the position after the last of them. Every character must be in the
+     *  alphabet. */
+    int convert(char[] in, int inStart, char[] out, int outStart,
+                int length, int position) {
+        char[] table = _table;
+        int size = _size;
+        int base = position * size;
+        int end = _length * size;
+        for (int j = 0; j < length; j += 1) {
+            char ch = in[inStart + j];
+            int c = _alphabet.toInt(ch);
+            if (c < 0) {
+                throw error("Character '%c' is not in the alphabet.", ch);
+            }
+            out[outStart + j] = _alphabet.toChar(table[base + c]);
+            base += size;
+            if (base == end) {
+                base = _loop * size;
+            }
+        }
+        return base / size;
+    }
+
+    /** Return the result of converting C (an index in the range 0 .. size -
+     *  1) at position POSITION. */
+    int convert(int position, int c) {
+        return _table[position * _size + c];
+    }
+
+    /** Return the position after POSITION. */
+    int next(int position) {
+        return position + 1 == _length ? _loop : position + 1;
+    }
+
+    /** The alphabet of the machine. */
+    private final Alphabet _alphabet;
+    /** The size of the alphabet. */
+    private final int _size;
+    /** The number of rotating rotors. */
+    private final int _pawls;
+    /** The settings of the rotors that do not rotate, reflector first. */
+    private final int[] _fixed;
+    /** The combined substitution at each position, in order, each taking
+     *  up _size entries. */
+    private final char[] _table;
+    /** The settings of the rotating rotors at each position (before
+     *  stepping for the character converted there), _pawls entries each,
+     *  leftmost first. */
+    private final char[] _settings;
+    /** The number of positions in the sequence before it repeats. */
+    private final int _length;
+    /** The position that follows the last one. */
+    private final int _loop;
+}
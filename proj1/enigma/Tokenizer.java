@@ -0,0 +1,144 @@
+package enigma;
+
+import java.util.NoSuchElementException;
+
+/** A single pass over the whitespace-separated tokens of a configuration
+ *  file or settings line, in place of a Scanner. It finds each token by
+ *  looking at each character once, with no regular expressions, and
+ *  keeps track of where each token is, so that errors can say exactly
+ *  where the offending token was. Like Scanner.next, next() throws a
+ *  NoSuchElementException when there are no more tokens.
+ *  @author Pavel Gladkevich
+ */
+class Tokenizer {
+
+    /** A Tokenizer for the tokens of TEXT. */
+    Tokenizer(String text) {
+        _text = text;
+        _line = 1;
+        _lastLine = 1;
+        _lastColumn = 1;
+        findNext();
+    }
+
+    /** Return true iff there is another token. */
+    boolean hasNext() {
+        return _start < _text.length();
+    }
+
+    /** Return the next token. */
+    String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String token = _text.substring(_start, _end);
+        _lastLine = _line;
+        _lastColumn = column();
+        _pos = _end;
+        findNext();
+        return token;
+    }
+
+    /** Return true iff the next token is a cycle or cycles: it starts
+     *  with '(' and ends with ')'. */
+    boolean hasNextCycles() {
+        return hasNext() && _text.charAt(_start) == '('
+            && _text.charAt(_end - 1) == ')';
+    }
+
+    /** Return true iff the next token is a decimal integer, optionally
+     *  signed, that fits in an int. */
+    boolean hasNextInt() {
+        if (!hasNext()) {
+            return false;
+        }
+        int i = _start;
+        if (_text.charAt(i) == '+' || _text.charAt(i) == '-') {
+            i += 1;
+        }
+        if (i == _end || _end - i > 10) {
+            return false;
+        }
+        for (; i < _end; i += 1) {
+            char c = _text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        long value = Long.parseLong(_text.substring(_start, _end));
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+    /** Return the next token, which must be an integer (see hasNextInt). */
+    int nextInt() {
+        if (!hasNextInt()) {
+            throw errorAtNext("Expected an integer");
+        }
+        return Integer.parseInt(next());
+    }
+
+    /** Return an EnigmaException whose message is formed from MSGFORMAT and
+     *  ARGS as for String.format, prefixed by the position of the token
+     *  last returned by next(). */
+    EnigmaException error(String msgFormat, Object... args) {
+        return EnigmaException.error("%s: %s",
+            position(_lastLine, _lastColumn),
+            String.format(msgFormat, args));
+    }
+
+    /** Return an EnigmaException like that of error(MSGFORMAT, ARGS), but
+     *  giving the position of the next token, or of the end of the input if
+     *  there are no more tokens. */
+    EnigmaException errorAtNext(String msgFormat, Object... args) {
+        return EnigmaException.error("%s: %s", position(_line, column()),
+                                     String.format(msgFormat, args));
+    }
+
+    /** Return a description of line LINE, column COLUMN. */
+    private static String position(int line, int column) {
+        return String.format("line %d, column %d", line, column);
+    }
+
+    /** Return the column of the start of the next token (or of the end
+     *  of the input), counting from 1. */
+    private int column() {
+        return _start - _lineStart + 1;
+    }
+
+    /** Find the next token at or after _pos, setting _start and _end to its
+     *  bounds (both the length of the input if there is none), and keeping
+     *  count of the lines passed. */
+    private void findNext() {
+        int n = _text.length();
+        while (_pos < n && Character.isWhitespace(_text.charAt(_pos))) {
+            if (_text.charAt(_pos) == '\n') {
+                _line += 1;
+                _lineStart = _pos + 1;
+            }
+            _pos += 1;
+        }
+        _start = _pos;
+        while (_pos < n && !Character.isWhitespace(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+        _end = _pos;
+    }
+
+    /** The text being split into tokens. */
+    private final String _text;
+    /** The position in _text up to which it has been scanned. */
+    private int _pos;
+    /** The start of the next token in _text. */
+    private int _start;
+    /** The end of the next token in _text. */
+    private int _end;
+    /** The line, counting from 1, of the next token. */
+    private int _line;
+    /** The position in _text of the start of line _line. */
+    private int _lineStart;
+    /** The line of the token last returned by next(). */
+    private int _lastLine;
+    /** The column, counting from 1, of the token last returned by
+     *  next(). */
+    private int _lastColumn;
+}
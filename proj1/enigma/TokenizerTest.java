@@ -0,0 +1,68 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+
+/** The suite of all JUnit tests for the Tokenizer class.
+ *  @author Pavel Gladkevich
+ */
+public class TokenizerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    @Test
+    public void testTokens() {
+        Tokenizer t = new Tokenizer("  ABC 5\t-3\n I MQ (AELT) (BK)(NW)\r\n"
+                                    + " (\n x) +7 99999999999");
+        assertEquals("ABC", t.next());
+        assertTrue(t.hasNextInt());
+        assertEquals(5, t.nextInt());
+        assertEquals(-3, t.nextInt());
+        assertFalse(t.hasNextInt());
+        assertFalse(t.hasNextCycles());
+        assertEquals("I", t.next());
+        assertEquals("MQ", t.next());
+        assertTrue(t.hasNextCycles());
+        assertEquals("(AELT)", t.next());
+        assertTrue(t.hasNextCycles());
+        assertEquals("(BK)(NW)", t.next());
+        assertFalse(t.hasNextCycles());
+        assertEquals("(", t.next());
+        assertEquals("x)", t.next());
+        assertEquals(7, t.nextInt());
+        assertFalse(t.hasNextInt());
+        assertEquals("99999999999", t.next());
+        assertFalse(t.hasNext());
+        assertFalse(t.hasNextInt());
+        assertFalse(t.hasNextCycles());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPastEnd() {
+        Tokenizer t = new Tokenizer(" A \n ");
+        t.next();
+        t.next();
+    }
+
+    @Test
+    public void testPositions() {
+        Tokenizer t = new Tokenizer("AB 5\n\n  I   MQ\n");
+        t.next();
+        assertEquals("line 1, column 1: bad", t.error("bad").getMessage());
+        assertEquals("line 1, column 4: x 5",
+                     t.errorAtNext("x %d", 5).getMessage());
+        t.next();
+        t.next();
+        assertEquals("line 3, column 3: I", t.error("I").getMessage());
+        t.next();
+        assertEquals("line 3, column 7: M", t.error("M").getMessage());
+        assertEquals("line 4, column 1: end",
+                     t.errorAtNext("end").getMessage());
+    }
+}
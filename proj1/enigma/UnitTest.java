@@ -12,7 +12,12 @@ public class UnitTest {
     public static void main(String[] ignored) {
         System.exit(textui.runClasses(PermutationTest.class,
                                       MovingRotorTest.class,
-                                      MachineTest.class));
+                                      MachineTest.class,
+                                      EngineTest.class,
+                                      PipelineTest.class,
+                                      AnalysisTest.class,
+                                      ServiceTest.class,
+                                      TokenizerTest.class));
     }
 
 }
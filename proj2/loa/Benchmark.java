@@ -0,0 +1,151 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/** Timing and allocation measurements of the LOA search, run as
+ *      java loa.Benchmark [DEPTH [MSEC]]
+ *  For each of a few positions, it searches to DEPTH (by default 5) and
+ *  reports the positions visited per second and the bytes allocated per
+ *  position visited, and how many positions it visits without ordering
+ *  moves by captures, killers and history, together with the fraction of
+ *  cutoffs caused by the first move tried with and without that ordering,
+ *  and how many it visits, and the values and moves it finds, with a
+ *  plain alpha-beta search instead of a principal variation search.
+ *  The first searches warm up the JIT compiler and are not reported.
+ *  Then, for 1, 2, 4, ... threads, up to twice the number
+ *  of processors, it searches each position for MSEC milliseconds (by
+ *  default 1000) and reports the depth reached and the positions visited
+ *  per second.
+ *  @author Pavel Gladkevich
+ */
+public class Benchmark {
+
+    /** Default search depth. */
+    private static final int DEFAULT_DEPTH = 5;
+    /** Number of warm-up searches. */
+    private static final int WARMUP = 3;
+    /** Lengths of the random games that lead to the positions measured. */
+    private static final int[] PLIES = { 0, 8, 16 };
+    /** Seed of the random games. */
+    private static final long SEED = 61;
+    /** Default time budget of the searches on many threads. */
+    private static final int DEFAULT_TIME = 1000;
+
+    /** Run the benchmark, with the depth given in ARGS. */
+    public static void main(String... args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_DEPTH;
+        int time = args.length > 1 ? Integer.parseInt(args[1])
+            : DEFAULT_TIME;
+        Board[] positions = new Board[PLIES.length];
+        for (int k = 0; k < PLIES.length; k += 1) {
+            positions[k] = randomPosition(PLIES[k], new Random(SEED));
+        }
+        for (int k = 0; k < WARMUP; k += 1) {
+            search(positions[positions.length - 1], depth - 1, true, true);
+        }
+        System.out.printf("%-8s %6s %10s %10s %12s %12s%n", "plies",
+                          "depth", "nodes", "ms", "nodes/s", "bytes/node");
+        long[][] ordered = new long[PLIES.length][];
+        for (int k = 0; k < PLIES.length; k += 1) {
+            long[] result = search(positions[k], depth, true, true);
+            ordered[k] = result;
+            System.out.printf("%-8d %6d %10d %10.1f %12.0f %12.2f%n",
+                              PLIES[k], depth, result[0], result[1] / 1e6,
+                              result[0] / (result[1] / 1e9),
+                              (double) result[2] / result[0]);
+        }
+        System.out.printf("%n%-8s %12s %12s %12s %12s%n", "plies",
+                          "nodes", "unordered", "first-cut %",
+                          "unordered %");
+        for (int k = 0; k < PLIES.length; k += 1) {
+            long[] result = search(positions[k], depth, false, true);
+            System.out.printf("%-8d %12d %12d %12.1f %12.1f%n", PLIES[k],
+                              ordered[k][0], result[0],
+                              100.0 * ordered[k][4] / ordered[k][3],
+                              100.0 * result[4] / result[3]);
+        }
+        System.out.printf("%n%-8s %10s %10s %8s %8s %8s %8s %8s%n", "plies",
+                          "nodes", "alphabeta", "ratio", "value", "ab value",
+                          "move", "ab move");
+        for (int k = 0; k < PLIES.length; k += 1) {
+            long[] result = search(positions[k], depth, true, false);
+            System.out.printf("%-8d %10d %10d %8.2f %8d %8d %8s %8s%n",
+                              PLIES[k], ordered[k][0], result[0],
+                              (double) ordered[k][0] / result[0],
+                              ordered[k][5], result[5],
+                              Move.mv((int) ordered[k][6]),
+                              Move.mv((int) result[6]));
+        }
+        System.out.printf("%n%-8s %6s %6s %10s %12s%n", "plies", "threads",
+                          "depth", "nodes", "nodes/s");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+            for (int k = 0; k < PLIES.length; k += 1) {
+                MachinePlayer player = new MachinePlayer(time, threads);
+                player.useBook(null);
+                long start = System.nanoTime();
+                player.search(new Board(positions[k]),
+                              MachinePlayer.MAX_DEPTH, time);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-8d %6d %6d %10d %12.0f%n", PLIES[k],
+                                  threads, player.depth(), player.nodes(),
+                                  player.nodes() / seconds);
+            }
+        }
+    }
+
+    /** Return the position after PLIES random moves from the initial
+     *  position, chosen using RANDOM (stopping early if the game ends). */
+    static Board randomPosition(int plies, Random random) {
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < plies && !board.gameOver(); k += 1) {
+            int n = board.legalMoves(moves, 0);
+            board.makeMove(moves[random.nextInt(n)]);
+        }
+        return board;
+    }
+
+    /** Search BOARD to DEPTH with a new player (and so a new
+     *  transposition table), ordering moves by captures, killers and
+     *  history iff ORDER and by principal variation search iff PVS, and
+     *  return the number of positions visited, the time taken in
+     *  nanoseconds, the bytes allocated by the search (not counting the
+     *  table, which is created beforehand), the number of cutoffs, the
+     *  number of those caused by the first move tried, the value found
+     *  and the code of the move found. */
+    static long[] search(Board board, int depth, boolean order,
+                         boolean pvs) {
+        MachinePlayer player = new MachinePlayer();
+        player.useBook(null);
+        player.useOrdering(order);
+        player.usePVS(pvs);
+        Board work = new Board(board);
+        player.search(work, 1, Integer.MAX_VALUE);
+        long bytes0 = allocated();
+        long start = System.nanoTime();
+        Move move = player.search(work, depth, Integer.MAX_VALUE);
+        long time = System.nanoTime() - start;
+        long bytes = allocated() - bytes0;
+        long cutoffs = player.cutoffs();
+        long first = Math.round(player.firstMoveCutoffRate() * cutoffs);
+        return new long[] { player.nodes(), time, bytes, cutoffs, first,
+                            player.value(), move.code() };
+    }
+
+    /** Return the number of bytes allocated so far by this thread, or 0
+     *  if the JVM cannot tell. */
+    private static long allocated() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
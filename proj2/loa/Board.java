@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import java.util.Random;
 
 import java.util.regex.Pattern;
 
@@ -14,10 +15,21 @@ import static loa.Piece.*;
 import static loa.Square.*;
 
 /** Represents the state of a game of Lines of Action.
+ *
+ *  Besides the pieces, a Board keeps the features of each side's pieces
+ *  that the Evaluator weighs up to date as pieces are set, moved and
+ *  retracted, each with a fixed amount of work per change: the sums of
+ *  their rows, columns and squared distances from the corner (from which
+ *  their spread about their centre of mass follows), and their quad
+ *  counts (from which their Euler number follows).
  *  @author Pavel Gladkevich
  */
 class Board {
 
+    /** The largest possible number of legal moves from a position: each
+     *  piece moves along at most 8 directions. */
+    static final int MAX_MOVES = 8 * NUM_SQUARES;
+
     /** Default number of moves for each side that results in a draw. */
     static final int DEFAULT_MOVE_LIMIT = 60;
 
@@ -58,14 +70,27 @@ class Board {
         }
         _winner = null;
         _turn = side;
+        _key = computeKey();
+        _pieces[0] = _pieces[1] = 0;
+        for (int i = 0; i < NUM_SQUARES; i += 1) {
+            _pieces[0] |= bit(_board[i] == BP, i);
+            _pieces[1] |= bit(_board[i] == WP, i);
+        }
+        for (int line = 0; line < 4; line += 1) {
+            Arrays.fill(_lineCounts[line], 0);
+            for (int i = 0; i < NUM_SQUARES; i += 1) {
+                if (_board[i] != EMP) {
+                    _lineCounts[line][LINE[line][i]] += 1;
+                }
+            }
+        }
+        computeFeatures();
         _moveLimit = DEFAULT_MOVE_LIMIT;
         _winnerKnown = false;
         _moves.clear();
         _whiteRegionSizes.clear();
         _blackRegionSizes.clear();
         _subsetsInitialized = false;
-        computeRegions();
-        _subsetsInitialized = true;
     }
 
     /** Set me to the initial configuration. */
@@ -87,6 +112,21 @@ class Board {
         ArrayList<Move> moves = board.getMOVES();
         _moves.addAll(moves);
         _turn = board.getTURN();
+        _key = board.key();
+        _pieces[0] = board._pieces[0];
+        _pieces[1] = board._pieces[1];
+        for (int line = 0; line < 4; line += 1) {
+            System.arraycopy(board._lineCounts[line], 0, _lineCounts[line], 0,
+                             NUM_LINES);
+        }
+        System.arraycopy(board._rowSums, 0, _rowSums, 0, 2);
+        System.arraycopy(board._colSums, 0, _colSums, 0, 2);
+        System.arraycopy(board._squareSums, 0, _squareSums, 0, 2);
+        System.arraycopy(board._quads, 0, _quads, 0, 2);
+        if (_undo.length < board._undo.length) {
+            _undo = new byte[board._undo.length];
+        }
+        System.arraycopy(board._undo, 0, _undo, 0, moves.size());
         setMoveLimit(board.getLIMIT());
         _winnerKnown = board.getWINNERKNOWN();
         _winner = board.getWINNER();
@@ -106,10 +146,85 @@ class Board {
     /** Set the square at SQ to V and set the side that is to move next
      *  to NEXT, if NEXT is not null. */
     void set(Square sq, Piece v, Piece next) {
-        _board[sq.index()] = v;
+        int i = sq.index();
+        _key ^= pieceKey(_board[i], i) ^ pieceKey(v, i);
+        addFeatures(i, -1);
+        long b = 1L << i;
+        int change = (v == EMP ? 0 : 1)
+            - (int) ((_pieces[0] | _pieces[1]) >>> i & 1);
+        if (change != 0) {
+            for (int line = 0; line < 4; line += 1) {
+                _lineCounts[line][LINE[line][i]] += change;
+            }
+        }
+        _pieces[0] = v == BP ? _pieces[0] | b : _pieces[0] & ~b;
+        _pieces[1] = v == WP ? _pieces[1] | b : _pieces[1] & ~b;
+        _board[i] = v;
+        addFeatures(i, 1);
+        _subsetsInitialized = false;
+        _winnerKnown = false;
         if (next != null) {
-            _turn = next;
+            setTurn(next);
+        }
+    }
+
+    /** Add SIGN (1 or -1) times the contributions to the features of the
+     *  piece on the square with index I, and of the quads around it. */
+    private void addFeatures(int i, int sign) {
+        int k = _board[i] == BP ? 0 : _board[i] == WP ? 1 : -1;
+        if (k >= 0) {
+            int r = i >>> 3, c = i & 7;
+            _rowSums[k] += sign * r;
+            _colSums[k] += sign * c;
+            _squareSums[k] += sign * (r * r + c * c);
         }
+        for (int q : QUADS[i]) {
+            _quads[0] += sign * quadValue(_pieces[0] & QUAD_MASK[q]);
+            _quads[1] += sign * quadValue(_pieces[1] & QUAD_MASK[q]);
+        }
+    }
+
+    /** Set the features from scratch. */
+    private void computeFeatures() {
+        for (int k = 0; k < 2; k += 1) {
+            _rowSums[k] = _colSums[k] = _squareSums[k] = _quads[k] = 0;
+            for (long rest = _pieces[k]; rest != 0; rest &= rest - 1) {
+                int i = Long.numberOfTrailingZeros(rest);
+                int r = i >>> 3, c = i & 7;
+                _rowSums[k] += r;
+                _colSums[k] += c;
+                _squareSums[k] += r * r + c * c;
+            }
+            for (long mask : QUAD_MASK) {
+                _quads[k] += quadValue(_pieces[k] & mask);
+            }
+        }
+    }
+
+    /** Return the contribution to the quad sum (see quadSum) of a quad
+     *  whose pieces of one side are the bit board BITS: 1 for one piece, -1
+     *  for three, -2 for two on a diagonal, and otherwise 0. */
+    private static int quadValue(long bits) {
+        switch (Long.bitCount(bits)) {
+        case 1:
+            return 1;
+        case 2:
+            int gap = Long.numberOfTrailingZeros(Long.highestOneBit(bits))
+                - Long.numberOfTrailingZeros(bits);
+            return gap == BOARD_SIZE - 1 || gap == BOARD_SIZE + 1 ? -2 : 0;
+        case 3:
+            return -1;
+        default:
+            return 0;
+        }
+    }
+
+    /** Make SIDE the side to move. */
+    private void setTurn(Piece side) {
+        if ((_turn == WP) != (side == WP)) {
+            _key ^= WHITE_TO_MOVE;
+        }
+        _turn = side;
     }
 
     /** Set the square at SQ to V, without modifying the side that
@@ -125,6 +240,7 @@ class Board {
             throw new IllegalArgumentException("move limit too small");
         }
         _moveLimit = 2 * limit;
+        _winnerKnown = false;
     }
 
     /** Assuming isLegal(MOVE), make MOVE. This function assumes that
@@ -133,8 +249,12 @@ class Board {
      *  the capturing move. */
     void makeMove(Move move) {
         assert isLegal(move);
-        boolean capture = false;
         Square from = move.getFrom(), to = move.getTo();
+        int n = movesMade();
+        if (n == _undo.length) {
+            _undo = Arrays.copyOf(_undo, 2 * n);
+        }
+        _undo[n] = winnerState();
         if (get(to).opposite() == null) {
             _moves.add(move);
         } else {
@@ -142,14 +262,18 @@ class Board {
         }
         set(to, get(from));
         set(from, EMP);
-        _subsetsInitialized = false;
-        computeRegions();
-        _subsetsInitialized = true;
-        if (piecesContiguous(_turn) || piecesContiguous(_turn.opposite())
-                || movesMade() == getLIMIT()) {
-            _winner = winner();
+        Piece mover = _turn;
+        if (piecesContiguous(mover)) {
+            _winner = mover;
+        } else if (piecesContiguous(mover.opposite())) {
+            _winner = mover.opposite();
+        } else if (movesMade() == getLIMIT()) {
+            _winner = EMP;
+        } else {
+            _winner = null;
         }
-        _turn = _turn.opposite();
+        _winnerKnown = true;
+        setTurn(_turn.opposite());
     }
 
     /** Retract (unmake) one move, returning to the state immediately before
@@ -165,11 +289,30 @@ class Board {
             set(t, EMP);
         }
         set(f, from);
-        _turn = _turn.opposite();
-        _winnerKnown = false;
-        _winner = null;
-        _subsetsInitialized = false;
-        computeRegions();
+        setTurn(_turn.opposite());
+        restoreWinner(_undo[movesMade()]);
+    }
+
+    /** Return an encoding of _winnerKnown and _winner, for the undo
+     *  stack. */
+    private byte winnerState() {
+        if (!_winnerKnown) {
+            return UNKNOWN;
+        } else if (_winner == null) {
+            return 0;
+        } else {
+            return (byte) (_winner.ordinal() + 1);
+        }
+    }
+
+    /** Set _winnerKnown and _winner as encoded in STATE by winnerState. */
+    private void restoreWinner(byte state) {
+        _winnerKnown = state != UNKNOWN;
+        if (state == UNKNOWN || state == 0) {
+            _winner = null;
+        } else {
+            _winner = Piece.values()[state - 1];
+        }
     }
 
     /** Return the Piece representing who is next to move. */
@@ -178,81 +321,36 @@ class Board {
     }
 
     /** Return true iff FROM - TO is a legal move for the player currently on
-     *  move.
-     * if the direction we're moving torward has a different colored piece
-     * in between us then return false
-     * se blocked (Square from, Square to) to check if the above condition and
-     * also if the square to has a piece of the same color as the square from
-     *
-     * Need to also check for the right number of steps. If not the right number
-     * then return false. Valid number of steps is determined by the number
-     * of black or white pieces in the line of action*/
+     *  move: FROM holds one of its pieces, TO is as many squares away along
+     *  a line as there are pieces on that line, and the move is not
+     *  blocked (see blocked). */
     boolean isLegal(Square from, Square to) {
-
-        if (!from.isValidMove(to) || !isRightSteps(from, to)
-                || blocked(from, to) || get(from) != _turn) {
-            return false;
-        }
-        return true;
+        return get(from) == _turn && from.isValidMove(to)
+            && isRightSteps(from, to) && !blocked(from, to);
     }
+
     /** Return true iff FROM - TO is a legal move for the player currently on
      *  move.
      *
      * The same as above but without step check */
     boolean isLegalWithoutSteps(Square from, Square to) {
-        if (to == null || !from.isValidMove(to) || blocked(from, to)) {
-            return false;
-        }
-        return true;
+        return to != null && from.isValidMove(to) && !blocked(from, to);
     }
 
     /** Return true iff FROM - TO has the right number of steps for the current
      * amount of pieces on the line of action. */
     boolean isRightSteps(Square from, Square to) {
-        int dir1 = from.direction(to), dir2 = to.direction(from);
-        int count = 1;
-        Square curr = from.moveDest(dir1, 1);
-        while (curr != null) {
-            Piece currP = get(curr);
-            if (currP != EMP) {
-                count += 1;
-            }
-            curr = curr.moveDest(dir1, 1);
-        }
-        curr = from.moveDest(dir2, 1);
-        while (curr != null) {
-            Piece currP = get(curr);
-            if (currP != EMP) {
-                count += 1;
-            }
-            curr = curr.moveDest(dir2, 1);
-        }
-        return count == from.distance(to);
+        return from.distance(to) == steps(from, from.direction(to));
     }
 
     /** Return the number of steps for a line of action based off of a square
-     * FROM and a direction DIR. */
+     * FROM and a direction DIR: the number of pieces on the line through
+     * FROM in direction DIR, counting FROM itself whether or not it holds
+     * a piece. */
     int steps(Square from, int dir) {
-        int dir1 = dir;
-        int dir2 = (dir1 + 4) % 8;
-        int count = 1;
-        Square curr = from.moveDest(dir1, 1);
-        while (curr != null) {
-            Piece currP = get(curr);
-            if (currP != EMP) {
-                count += 1;
-            }
-            curr = curr.moveDest(dir1, 1);
-        }
-        curr = from.moveDest(dir2, 1);
-        while (curr != null) {
-            Piece currP = get(curr);
-            if (currP.abbrev().compareTo("-") != 0) {
-                count += 1;
-            }
-            curr = curr.moveDest(dir2, 1);
-        }
-        return count;
+        int i = from.index(), line = dir & 3;
+        int count = _lineCounts[line][LINE[line][i]];
+        return _board[i] == EMP ? count + 1 : count;
     }
 
     /** Return true iff MOVE is legal for the player currently on move.
@@ -261,34 +359,59 @@ class Board {
         return isLegal(move.getFrom(), move.getTo());
     }
 
+    /** Return the number of legal moves SIDE would have if it were on
+     *  move. */
+    int mobility(Piece side) {
+        return generate(side == BP ? 0 : 1, null, 0);
+    }
+
     /** Return a sequence of all legal moves from this position. */
     List<Move> legalMoves() {
-        allmoves.clear();
-        for (Square s : ALL_SQUARES) {
-            if (get(s).equals(_turn)) {
-                for (int dir = 0; dir < 4; dir += 1) {
-                    int opppositeDIR = dir + 4;
-                    int steps = steps(s, dir);
-                    Square pot1 = s.moveDest(dir, steps);
-                    Square pot2 = s.moveDest(opppositeDIR, steps);
-                    if (isLegalWithoutSteps(s, pot1)) {
-                        if (get(pot1) == _turn.opposite()) {
-                            allmoves.add(Move.mv(s, pot1, true));
-                        } else {
-                            allmoves.add(Move.mv(s, pot1));
-                        }
-                    }
-                    if (isLegalWithoutSteps(s, pot2)) {
-                        if (get(pot2) == _turn.opposite()) {
-                            allmoves.add(Move.mv(s, pot2, true));
-                        } else {
-                            allmoves.add(Move.mv(s, pot2));
+        int n = legalMoves(_moveBuffer, 0);
+        ArrayList<Move> moves = new ArrayList<>(n);
+        for (int k = 0; k < n; k += 1) {
+            moves.add(Move.mv(_moveBuffer[k]));
+        }
+        return moves;
+    }
+
+    /** Store the codes (see Move.code) of all legal moves from this position
+     *  in MOVES, starting at index START, and return their number. MOVES
+     *  must have room for MAX_MOVES of them. Allocates nothing. */
+    int legalMoves(int[] moves, int start) {
+        return generate(_turn == BP ? 0 : 1, moves, start);
+    }
+
+    /** Return the number of legal moves of black (if ME is 0) or white (if
+     *  it is 1) were it on move, storing their codes in MOVES starting at
+     *  index START unless MOVES is null. */
+    private int generate(int me, int[] moves, int start) {
+        int n = start;
+        long own = _pieces[me], enemy = _pieces[1 - me];
+        for (long rest = own; rest != 0; rest &= rest - 1) {
+            int s = Long.numberOfTrailingZeros(rest);
+            for (int line = 0; line < 4; line += 1) {
+                int steps = _lineCounts[line][LINE[line][s]];
+                for (int dir = line; dir < 8; dir += 4) {
+                    int t = DEST[s][dir][steps];
+                    if (t >= 0 && (own >>> t & 1) == 0
+                        && (BETWEEN[s][t] & enemy) == 0) {
+                        if (moves != null) {
+                            moves[n] = s << 6 | t
+                                | (int) (enemy >>> t & 1) * Move.CAPTURE_BIT;
                         }
+                        n += 1;
                     }
                 }
             }
         }
-        return allmoves;
+        return n - start;
+    }
+
+    /** Assuming it denotes a legal move, make the move whose code (see
+     *  Move.code) is MOVE. */
+    void makeMove(int move) {
+        makeMove(Move.mv(Move.squares(move)));
     }
 
     /** Return true iff the game is over (either player has all his
@@ -299,24 +422,62 @@ class Board {
 
     /** Return true iff SIDE's pieces are continguous. */
     boolean piecesContiguous(Piece side) {
-        return getRegionSizes(side).size() == 1;
+        long pieces = pieces(side);
+        return pieces != 0
+            && region(Long.lowestOneBit(pieces), pieces) == pieces;
+    }
+
+    /** Return the set of squares holding SIDE's pieces, as a bit board: bit
+     *  S.index() is set iff square S holds one. */
+    long pieces(Piece side) {
+        return side == BP ? _pieces[0] : side == WP ? _pieces[1] : 0;
+    }
+
+    /** Return the number of SIDE's pieces. */
+    int count(Piece side) {
+        return Long.bitCount(pieces(side));
+    }
+
+    /** Return N times the sum of the squared distances of SIDE's N pieces
+     *  from their centre of mass (which, unlike the sum itself, is an
+     *  integer). */
+    int dispersion(Piece side) {
+        int k = side == BP ? 0 : 1;
+        return count(side) * _squareSums[k] - _rowSums[k] * _rowSums[k]
+            - _colSums[k] * _colSums[k];
+    }
+
+    /** Return the quad sum of SIDE's pieces: of the 2x2 blocks of squares
+     *  (including those hanging over the edge of the board), the number
+     *  holding one of SIDE's pieces, less the number holding three, less
+     *  twice the number holding two on a diagonal. It is four times the
+     *  Euler number of the pieces: the number of their regions less the
+     *  number of holes in them. */
+    int quadSum(Piece side) {
+        return _quads[side == BP ? 0 : 1];
+    }
+
+    /** Return the number of SIDE's pieces on the edge of the board,
+     *  counting those in corners twice. */
+    int edgePieces(Piece side) {
+        long pieces = pieces(side);
+        return Long.bitCount(pieces & EDGES) + Long.bitCount(pieces & CORNERS);
     }
 
     /** Return the winning side, if any.  If the game is not over, result is
      *  null.  If the game has ended in a tie, returns EMP. */
     Piece winner() {
         if (!_winnerKnown) {
-            _winnerKnown = true;
             if (piecesContiguous(_turn)) {
-                return _turn;
+                _winner = _turn;
             } else if (piecesContiguous(_turn.opposite())) {
-                return _turn.opposite();
+                _winner = _turn.opposite();
             } else if (movesMade() == getLIMIT()) {
-                return EMP;
+                _winner = EMP;
             } else {
-                _winnerKnown = false;
-                return null;
+                _winner = null;
             }
+            _winnerKnown = true;
         }
         return _winner;
     }
@@ -336,7 +497,38 @@ class Board {
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+        return (int) (_key ^ (_key >>> 32));
+    }
+
+    /** Return the Zobrist key of this position: the exclusive or of a
+     *  random number for each piece on each square (and one for white
+     *  being on move). Equal positions have equal keys, and distinct ones
+     *  almost certainly do not. It is kept up to date as pieces are set,
+     *  moved and retracted. */
+    long key() {
+        return _key;
+    }
+
+    /** Return the Zobrist key of the current contents and turn, computed
+     *  from scratch. */
+    private long computeKey() {
+        long key = _turn == WP ? WHITE_TO_MOVE : 0;
+        for (int i = 0; i < _board.length; i += 1) {
+            key ^= pieceKey(_board[i], i);
+        }
+        return key;
+    }
+
+    /** Return the key of piece P on the square with index I (0 for EMP or
+     *  null). */
+    private static long pieceKey(Piece p, int i) {
+        if (p == BP) {
+            return PIECE_KEYS[0][i];
+        } else if (p == WP) {
+            return PIECE_KEYS[1][i];
+        } else {
+            return 0;
+        }
     }
 
     @Override
@@ -358,37 +550,34 @@ class Board {
      *  piece or by a friendly piece on the target square. */
     private boolean blocked(Square from, Square to) {
         Piece f = get(from);
-        Piece t = get(to);
-        if (f == t) {
+        if (f == get(to)) {
             return true;
         }
-        int dir = from.direction(to);
-        int distance = from.distance(to);
-        for (int steps = 1; steps < distance; steps += 1) {
-            Square currSQ = from.moveDest(dir, steps);
-            Piece currP = get(currSQ);
-            if (f.opposite() == currP) {
-                return true;
-            }
-        }
-        return false;
+        return (BETWEEN[from.index()][to.index()] & pieces(f.opposite())) != 0;
     }
 
-    /** Return the size of the as-yet unvisited cluster of squares
-     *  containing P at and adjacent to SQ.  VISITED indicates squares that
-     *  have already been processed or are in different clusters.  Update
-     *  VISITED to reflect squares counted. */
-    private int numContig(Square sq, boolean[][] visited, Piece p) {
-        int col = sq.col(), row = sq.row();
-        if (p == EMP || get(sq) != p || visited[col][row]) {
-            return 0;
-        }
-        visited[col][row] = true;
-        int count = 1;
-        for (Square s : sq.adjacent()) {
-            count += numContig(s, visited, p);
-        }
-        return count;
+    /** Return the bit board with a 1 at index I iff B. */
+    private static long bit(boolean b, int i) {
+        return b ? 1L << i : 0;
+    }
+
+    /** Return the squares of the bit board SQUARES together with the
+     *  squares adjacent to them. */
+    static long spread(long squares) {
+        long row = squares | (squares << 1 & ~FILE_A)
+            | (squares >>> 1 & ~FILE_H);
+        return row | row << BOARD_SIZE | row >>> BOARD_SIZE;
+    }
+
+    /** Return the connected region of the bit board PIECES that contains
+     *  the squares of the bit board START (all of which are in PIECES). */
+    static long region(long start, long pieces) {
+        long region = start, last;
+        do {
+            last = region;
+            region = spread(region) & pieces;
+        } while (region != last);
+        return region;
     }
 
     /** Set the values of _whiteRegionSizes and _blackRegionSizes. */
@@ -396,30 +585,23 @@ class Board {
         if (_subsetsInitialized) {
             return;
         }
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
-        boolean[][] visited = new boolean[BOARD_SIZE][BOARD_SIZE];
-        for (int col = 0; col < BOARD_SIZE; col += 1) {
-            for (int row = 0; row < BOARD_SIZE; row += 1) {
-                if (!visited[col][row]) {
-                    Piece p = get(sq(col, row));
-                    if (p != EMP) {
-                        if (p == WP) {
-                            int countW = numContig(sq(col, row), visited, WP);
-                            _whiteRegionSizes.add(countW);
-                        } else {
-                            int countB = numContig(sq(col, row), visited, BP);
-                            _blackRegionSizes.add(countB);
-                        }
-                    }
-                }
-            }
-        }
-        Collections.sort(_whiteRegionSizes, Collections.reverseOrder());
-        Collections.sort(_blackRegionSizes, Collections.reverseOrder());
+        regionSizes(_pieces[1], _whiteRegionSizes);
+        regionSizes(_pieces[0], _blackRegionSizes);
         _subsetsInitialized = true;
     }
 
+    /** Set SIZES to the sizes of the connected regions of the bit board
+     *  PIECES, largest first. */
+    private static void regionSizes(long pieces, ArrayList<Integer> sizes) {
+        sizes.clear();
+        while (pieces != 0) {
+            long region = region(Long.lowestOneBit(pieces), pieces);
+            sizes.add(Long.bitCount(region));
+            pieces &= ~region;
+        }
+        Collections.sort(sizes, Collections.reverseOrder());
+    }
+
     /** Return the sizes of all the regions in the current union-find
      *  structure for side S. */
     List<Integer> getRegionSizes(Piece s) {
@@ -481,13 +663,124 @@ class Board {
         { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP }
     };
 
+    /** The random numbers making up Zobrist keys, for black and white
+     *  pieces on each square. They come from a fixed seed, so that keys
+     *  are the same from run to run. */
+    private static final long[][] PIECE_KEYS = new long[2][NUM_SQUARES];
+    /** The random number in the key of a position with white on move. */
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        Random random = new Random(0x4c4f41L);
+        for (int k = 0; k < 2; k += 1) {
+            for (int i = 0; i < NUM_SQUARES; i += 1) {
+                PIECE_KEYS[k][i] = random.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = random.nextLong();
+    }
+
+    /** Bit boards of the squares in the leftmost and rightmost columns. */
+    private static final long
+        FILE_A = 0x0101010101010101L,
+        FILE_H = FILE_A << (BOARD_SIZE - 1);
+
+    /** Bit boards of the squares on the edge of the board and in its
+     *  corners. */
+    private static final long
+        EDGES = FILE_A | FILE_H | 0xffL | 0xffL << (NUM_SQUARES - BOARD_SIZE),
+        CORNERS = 1L | 1L << (BOARD_SIZE - 1)
+            | 1L << (NUM_SQUARES - BOARD_SIZE) | 1L << (NUM_SQUARES - 1);
+
+    /** The number of quads (2x2 blocks of squares, including those hanging
+     *  over the edge) in each row and column. */
+    private static final int QUAD_SIDE = BOARD_SIZE + 1;
+    /** QUAD_MASK[q] is the bit board of the squares of quad Q, which
+     *  covers columns x - 1 and x and rows y - 1 and y, where q is
+     *  y * QUAD_SIDE + x. */
+    private static final long[] QUAD_MASK = new long[QUAD_SIDE * QUAD_SIDE];
+    /** QUADS[i] holds the numbers of the four quads containing the square
+     *  with index I. */
+    private static final int[][] QUADS = new int[NUM_SQUARES][4];
+
+    static {
+        for (Square s : ALL_SQUARES) {
+            int i = s.index(), c = s.col(), r = s.row();
+            for (int k = 0; k < 4; k += 1) {
+                int q = (r + k / 2) * QUAD_SIDE + c + k % 2;
+                QUADS[i][k] = q;
+                QUAD_MASK[q] |= 1L << i;
+            }
+        }
+    }
+
+    /** The number of lines in each direction (columns, rows, or diagonals
+     *  of either slope). */
+    private static final int NUM_LINES = 2 * BOARD_SIZE - 1;
+
+    /** LINE[d][i] is the number of the line in direction d, or d + 4,
+     *  through the square with index I (see Square.moveDest for the
+     *  directions): its column, its diagonal rising to the right, its row,
+     *  or its diagonal falling to the right, for d = 0 .. 3. */
+    private static final int[][] LINE = new int[4][NUM_SQUARES];
+    /** DEST[i][d][n] is the index of the square N squares in direction D
+     *  from the square with index I, or -1 if that is off the board. */
+    private static final int[][][] DEST =
+        new int[NUM_SQUARES][8][BOARD_SIZE + 1];
+    /** BETWEEN[i][j] is the bit board of the squares strictly between the
+     *  squares with indices I and J, if they are on a line, and otherwise
+     *  0. */
+    private static final long[][] BETWEEN = new long[NUM_SQUARES][NUM_SQUARES];
+
+    static {
+        for (Square s : ALL_SQUARES) {
+            int i = s.index(), c = s.col(), r = s.row();
+            LINE[0][i] = c;
+            LINE[1][i] = c - r + BOARD_SIZE - 1;
+            LINE[2][i] = r;
+            LINE[3][i] = c + r;
+            for (int dir = 0; dir < 8; dir += 1) {
+                long path = 0;
+                DEST[i][dir][0] = -1;
+                for (int n = 1; n <= BOARD_SIZE; n += 1) {
+                    Square t = s.moveDest(dir, n);
+                    DEST[i][dir][n] = t == null ? -1 : t.index();
+                    if (t != null) {
+                        BETWEEN[i][t.index()] = path;
+                        path |= 1L << t.index();
+                    }
+                }
+            }
+        }
+    }
+
+    /** Encoding of an unknown winner on the undo stack. */
+    private static final byte UNKNOWN = -1;
+
     /** Current contents of the board.  Square S is at _board[S.index()]. */
     private final Piece[] _board = new Piece[BOARD_SIZE  * BOARD_SIZE];
 
     /** List of all unretracted moves on this board, in order. */
     private final ArrayList<Move> _moves = new ArrayList<>();
+    /** The undo stack: _undo[k] encodes the winner as known before move
+     *  k of _moves (see winnerState), so that retract restores it without
+     *  looking at the board. */
+    private byte[] _undo = new byte[2 * DEFAULT_MOVE_LIMIT];
+    /** The squares of the black and white pieces, as bit boards. */
+    private final long[] _pieces = new long[2];
+    /** _lineCounts[d][k] is the number of pieces on line K in direction D
+     *  (see LINE). */
+    private final int[][] _lineCounts = new int[4][NUM_LINES];
+    /** The sums of the rows, of the columns, and of the squares of the
+     *  rows and columns, of the black and white pieces. */
+    private final int[]
+        _rowSums = new int[2], _colSums = new int[2], _squareSums = new int[2];
+    /** The quad sums (see quadSum) of the black and white pieces. */
+    private final int[] _quads = new int[2];
     /** Current side on move. */
     private Piece _turn;
+    /** The Zobrist key of the current position. */
+    private long _key;
     /** Limit on number of moves before tie is declared.  */
     private int _moveLimit;
     /** True iff the value of _winner is known to be valid. */
@@ -504,6 +797,6 @@ class Board {
         _whiteRegionSizes = new ArrayList<>(),
         _blackRegionSizes = new ArrayList<>();
 
-    /** List of the possible moves for this player. */
-    private final ArrayList<Move> allmoves = new ArrayList<>();
+    /** Buffer for the codes of the moves returned by legalMoves(). */
+    private final int[] _moveBuffer = new int[MAX_MOVES];
 }
@@ -0,0 +1,223 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ucb.util.CommandArgs;
+
+/** Microbenchmarks of the basic Board operations, run as
+ *      java loa.BoardBenchmark [ --save=FILE ] [ --check=FILE ]
+ *                              [ --tolerance=PCT ]
+ *  For each of legalMoves, makeMove followed by retract,
+ *  piecesContiguous and copyFrom, it times the operation on positions
+ *  from random games, and prints the median over several rounds of the
+ *  nanoseconds per operation. With --save, it writes those numbers to
+ *  FILE as a baseline; with --check, it compares them with the baseline
+ *  in FILE and exits with code 1 if any is more than PCT percent (by
+ *  default 50) slower. "make bench" checks against the baseline in
+ *  testing/board-benchmarks.txt, first saving one there if there is none.
+ *  Since the times are absolute, a baseline is only meaningful on the
+ *  machine that recorded it: it is not checked in, and must be recorded
+ *  again (with "make bench-baseline") on other hardware.
+ *
+ *  Each round runs the operation for at least ROUND_TIME, after warm-up
+ *  rounds that let the JIT compiler finish; each operation returns a
+ *  value that goes into a checksum, so that none can be optimized away.
+ *  @author Pavel Gladkevich
+ */
+public class BoardBenchmark {
+
+    /** Lengths of the random games that lead to the positions used. */
+    private static final int[] PLIES = { 0, 8, 16, 24, 32 };
+    /** Seed of the random games. */
+    private static final long SEED = 61;
+    /** Default tolerance of --check, in percent. */
+    private static final int DEFAULT_TOLERANCE = 50;
+    /** Number of warm-up rounds. */
+    private static final int WARMUP_ROUNDS = 5;
+    /** Number of measured rounds. */
+    private static final int ROUNDS = 9;
+    /** Minimum length of a round, in nanoseconds. */
+    private static final long ROUND_TIME = 100_000_000L;
+
+    /** Run the benchmarks as described by ARGS (see above). */
+    public static void main(String... args) {
+        CommandArgs options =
+            new CommandArgs("--save=(.+){0,1} --check=(.+){0,1} "
+                            + "--tolerance=(\\d+){0,1}", args);
+        if (!options.ok()) {
+            System.err.println("Usage: java loa.BoardBenchmark "
+                               + "[ --save=FILE ] [ --check=FILE ] "
+                               + "[ --tolerance=PCT ]");
+            System.exit(1);
+        }
+        Map<String, Double> results = new BoardBenchmark().run(System.out);
+        try {
+            if (options.contains("--save")) {
+                save(results, Paths.get(options.getFirst("--save")));
+            }
+            if (options.contains("--check")) {
+                int tolerance = options.contains("--tolerance")
+                    ? options.getInt("--tolerance") : DEFAULT_TOLERANCE;
+                Map<String, Double> baseline =
+                    load(Paths.get(options.getFirst("--check")));
+                if (!check(results, baseline, tolerance, System.out)) {
+                    System.exit(1);
+                }
+            }
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A benchmark on positions from random games. */
+    BoardBenchmark() {
+        _positions = new Board[PLIES.length];
+        _moves = new int[PLIES.length][];
+        for (int k = 0; k < PLIES.length; k += 1) {
+            _positions[k] = Benchmark.randomPosition(PLIES[k],
+                                                     new Random(SEED));
+            int[] moves = new int[Board.MAX_MOVES];
+            int n = _positions[k].gameOver() ? 0
+                : _positions[k].legalMoves(moves, 0);
+            _moves[k] = Arrays.copyOf(moves, n);
+        }
+        _target = new Board();
+    }
+
+    /** One operation being timed. */
+    private interface Operation {
+        /** Perform the operation for the Ith time, returning a value
+         *  that depends on its result. */
+        long run(int i);
+    }
+
+    /** Time each operation, writing the results to OUT, and return the
+     *  nanoseconds per operation of each, by name, in order. */
+    Map<String, Double> run(PrintStream out) {
+        Map<String, Double> results = new LinkedHashMap<>();
+        int[] buffer = new int[Board.MAX_MOVES];
+        int n = _positions.length;
+        time("legalMoves", i -> _positions[i % n].legalMoves(buffer, 0),
+             results, out);
+        time("makeMove/retract", i -> makeAndRetract(i), results, out);
+        time("piecesContiguous", i -> {
+            Board board = _positions[i % n];
+            return board.piecesContiguous(board.turn()) ? 1 : 0;
+        }, results, out);
+        time("copyFrom", i -> {
+            _target.copyFrom(_positions[i % n]);
+            return _target.key();
+        }, results, out);
+        out.printf("(checksum %d)%n", _checksum);
+        return results;
+    }
+
+    /** Make and retract the Ith move in turn from the positions with
+     *  legal moves, returning the key of the position after the move. */
+    private long makeAndRetract(int i) {
+        int k = i % _positions.length;
+        int[] moves = _moves[k];
+        if (moves.length == 0) {
+            return 0;
+        }
+        Board board = _positions[k];
+        board.makeMove(moves[(i / _positions.length) % moves.length]);
+        long key = board.key();
+        board.retract();
+        return key;
+    }
+
+    /** Time OPERATION, recording its nanoseconds per operation under NAME
+     *  in RESULTS and writing them to OUT. */
+    private void time(String name, Operation operation,
+                      Map<String, Double> results, PrintStream out) {
+        double[] rounds = new double[ROUNDS];
+        for (int r = -WARMUP_ROUNDS; r < ROUNDS; r += 1) {
+            long start = System.nanoTime(), elapsed;
+            int count = 0;
+            do {
+                for (int k = 0; k < BATCH; k += 1) {
+                    _checksum += operation.run(count);
+                    count += 1;
+                }
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < ROUND_TIME);
+            if (r >= 0) {
+                rounds[r] = (double) elapsed / count;
+            }
+        }
+        Arrays.sort(rounds);
+        double median = rounds[ROUNDS / 2];
+        results.put(name, median);
+        out.printf("%-20s %10.1f ns/op (%.1f .. %.1f)%n", name, median,
+                   rounds[0], rounds[ROUNDS - 1]);
+    }
+
+    /** Write RESULTS to FILE, one "NAME NANOSECONDS" line for each. */
+    static void save(Map<String, Double> results, Path file)
+        throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            lines.add(String.format("%s %.1f", result.getKey(),
+                                    result.getValue()));
+        }
+        Files.write(file, lines);
+    }
+
+    /** Return the results saved in FILE by save. */
+    static Map<String, Double> load(Path file) throws IOException {
+        Map<String, Double> results = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length == 2) {
+                results.put(fields[0], Double.parseDouble(fields[1]));
+            }
+        }
+        return results;
+    }
+
+    /** Return true iff none of RESULTS is more than TOLERANCE percent
+     *  slower than in BASELINE, writing the comparison to OUT. */
+    static boolean check(Map<String, Double> results,
+                         Map<String, Double> baseline, int tolerance,
+                         PrintStream out) {
+        boolean ok = true;
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            Double base = baseline.get(result.getKey());
+            if (base == null) {
+                continue;
+            }
+            double ratio = result.getValue() / base;
+            boolean slow = ratio > 1 + tolerance / 100.0;
+            out.printf("%-20s %6.2fx baseline%s%n", result.getKey(), ratio,
+                       slow ? "  REGRESSION" : "");
+            ok &= !slow;
+        }
+        return ok;
+    }
+
+    /** Number of operations between readings of the clock. */
+    private static final int BATCH = 1000;
+
+    /** The positions operated on. */
+    private final Board[] _positions;
+    /** The codes of the legal moves from each of _positions. */
+    private final int[][] _moves;
+    /** The board copied to. */
+    private final Board _target;
+    /** The sum of the results of all operations. */
+    private long _checksum;
+}
@@ -2,6 +2,11 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -144,4 +149,148 @@ public class BoardTest {
         Board b1 = new Board(BOARD1, BP);
         b1.makeMove(mv("g8-h7"));
     }
+
+    @Test
+    public void testKey() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(BOARD1, BP);
+        long key = b1.key();
+        assertNotEquals(key, new Board(BOARD1, WP).key());
+        assertNotEquals(key, new Board().key());
+        b1.makeMove(mv("f3-d5"));
+        assertNotEquals(key, b1.key());
+        Move reply = b1.legalMoves().get(0);
+        b1.makeMove(reply);
+        assertEquals(new Board(b1).key(), b1.key());
+        Board b2 = new Board(BOARD1, BP);
+        b2.set(sq("f3"), EMP);
+        b2.set(sq("d5"), BP, WP);
+        b2.set(reply.getFrom(), EMP);
+        b2.set(reply.getTo(), WP, BP);
+        assertEquals(b2.key(), b1.key());
+        b1.retract();
+        b1.retract();
+        assertEquals(key, b1.key());
+        assertEquals(b0.hashCode(), b1.hashCode());
+    }
+
+    @Test
+    public void testRegions() {
+        Board b = new Board(BOARD1, BP);
+        assertEquals(Arrays.asList(5, 2, 2, 2, 1), b.getRegionSizes(WP));
+        assertEquals(Arrays.asList(3, 2, 2, 2, 1, 1, 1),
+                     b.getRegionSizes(BP));
+        b.makeMove(mv("f3-d5"));
+        assertEquals(Arrays.asList(5, 2, 2, 1, 1), b.getRegionSizes(WP));
+        assertEquals(Arrays.asList(3, 3, 2, 2, 1, 1), b.getRegionSizes(BP));
+        b.retract();
+        assertEquals(Arrays.asList(5, 2, 2, 2, 1), b.getRegionSizes(WP));
+    }
+
+    @Test
+    public void testUndoWinner() {
+        Board b = new Board(MachinePlayerTest.WIN_IN_ONE, WP);
+        assertNull(b.winner());
+        b.makeMove(mv("f1-f3"));
+        assertTrue(b.piecesContiguous(WP));
+        assertEquals(WP, b.winner());
+        b.retract();
+        assertFalse(b.piecesContiguous(WP));
+        assertNull(b.winner());
+        assertFalse(b.gameOver());
+    }
+
+    /** Return the number of moves between squares of B that b.isLegal
+     *  allows, checking that each is in MOVES, with isCapture() true iff
+     *  it captures. */
+    private static int checkLegalMoves(Board b, List<Move> moves) {
+        int count = 0;
+        for (Square from : Square.ALL_SQUARES) {
+            for (Square to : Square.ALL_SQUARES) {
+                if (from.isValidMove(to) && b.isLegal(from, to)) {
+                    count += 1;
+                    Move capture = mv(from, to, true);
+                    assertTrue(from + "-" + to, b.get(to) == EMP
+                               ? moves.contains(mv(from, to))
+                               : moves.contains(capture));
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testLegalMovesComplete() {
+        Random random = new Random(61);
+        for (int game = 0; game < 20; game += 1) {
+            Board b = new Board();
+            while (!b.gameOver()) {
+                List<Move> moves = new ArrayList<>(b.legalMoves());
+                assertEquals(moves.size(), checkLegalMoves(b, moves));
+                if (moves.isEmpty()) {
+                    break;
+                }
+                b.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    public void testMoveCodes() {
+        Board b = new Board(BOARD1, BP);
+        int[] codes = new int[Board.MAX_MOVES + 1];
+        int n = b.legalMoves(codes, 1);
+        List<Move> moves = b.legalMoves();
+        assertEquals(moves.size(), n);
+        for (int k = 0; k < n; k += 1) {
+            Move move = Move.mv(codes[k + 1]);
+            assertEquals(moves.get(k), move);
+            assertEquals(codes[k + 1], move.code());
+        }
+        assertTrue(mv("f3-d5", true).code() != mv("f3-d5").code());
+        assertEquals(Move.squares(mv("f3-d5", true).code()),
+                     mv("f3-d5").code());
+        b.makeMove(mv("f3-d5", true).code());
+        assertEquals(mv("f3-d5", true), b.getMOVES().get(0));
+    }
+
+    /** Return a Board with the contents of B, with its features computed
+     *  from scratch. */
+    private static Board fresh(Board b) {
+        Piece[][] contents = new Piece[8][8];
+        for (Square s : Square.ALL_SQUARES) {
+            contents[s.row()][s.col()] = b.get(s);
+        }
+        return new Board(contents, b.turn());
+    }
+
+    @Test
+    public void testFeatures() {
+        Board b = new Board(BOARD1, BP);
+        assertEquals(4 * 5, b.quadSum(WP));
+        assertEquals(4 * 7, b.quadSum(BP));
+        assertEquals(8, b.edgePieces(WP));
+        assertEquals(8, b.edgePieces(BP));
+        assertEquals(b.legalMoves().size(), b.mobility(BP));
+        Board one = new Board(MachinePlayerTest.WIN_IN_ONE, WP);
+        one.makeMove(mv("f1-f3"));
+        assertEquals(4, one.quadSum(WP));
+        assertEquals(8, one.dispersion(WP));
+        Random random = new Random(61);
+        for (int game = 0; game < 20; game += 1) {
+            b = new Board();
+            while (!b.gameOver()) {
+                for (Piece side : new Piece[] { BP, WP }) {
+                    Board f = fresh(b);
+                    assertEquals(f.dispersion(side), b.dispersion(side));
+                    assertEquals(f.quadSum(side), b.quadSum(side));
+                }
+                List<Move> moves = b.legalMoves();
+                b.makeMove(moves.get(random.nextInt(moves.size())));
+                if (random.nextInt(4) == 0) {
+                    b.retract();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,314 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import static loa.Piece.*;
+
+/** A proof-number search that tries to prove that the side to move in a
+ *  position with few pieces left can force a win. It grows a tree of the
+ *  positions reachable from the root, each with a proof number (the
+ *  least number of unproven leaves that must be proven wins to prove it a
+ *  win) and a disproof number (the same for showing it is not one), and
+ *  repeatedly expands the most-proving leaf: the one reached by choosing,
+ *  at positions where the root's side is to move, the move of least proof
+ *  number, and elsewhere the move of least disproof number. A position
+ *  whose game is won by the root's side is proven; one lost or tied, or
+ *  with no legal moves, is disproven.
+ *
+ *  Results are cached by Zobrist key, in memory and, if a file is given,
+ *  on disk, where they are appended as they are found and from which
+ *  they are read when the solver is created. A result is only cached if
+ *  the move limit played no part in it, and is only used when there are
+ *  as many moves left before the limit as the proof took.
+ *  @author Pavel Gladkevich
+ */
+class EndgameSolver {
+
+    /** Result of a position whose side to move can force a win. */
+    static final int WIN = 1;
+    /** Result of a position whose side to move cannot force a win. */
+    static final int NO_WIN = 2;
+    /** Result of a position the solver could not decide. */
+    static final int UNKNOWN = 0;
+
+    /** The most pieces (of both sides together) in positions solved. */
+    static final int MAX_PIECES = 10;
+    /** Default number of positions in the tree. */
+    static final int DEFAULT_NODES = 1 << 18;
+
+    /** A solver with a tree of up to NODES positions, caching its results
+     *  in the file CACHE (if not null), which it reads if it exists. */
+    EndgameSolver(int nodes, Path cache) throws IOException {
+        _capacity = nodes;
+        _cacheFile = cache;
+        if (cache != null && Files.exists(cache)) {
+            readCache(cache);
+        }
+    }
+
+    /** A solver with a tree of DEFAULT_NODES positions, caching its
+     *  results in memory only. */
+    EndgameSolver() {
+        _capacity = DEFAULT_NODES;
+        _cacheFile = null;
+    }
+
+    /** Return true iff BOARD, whose game is not over, has few enough
+     *  pieces to be solved. */
+    static boolean applies(Board board) {
+        return board.count(BP) + board.count(WP) <= MAX_PIECES;
+    }
+
+    /** Try, until time DEADLINE (as given by System.nanoTime), to solve
+     *  BOARD, whose game is not over, returning WIN, NO_WIN or UNKNOWN.
+     *  After a WIN, move() is a winning move. BOARD is restored before
+     *  returning. */
+    int solve(Board board, long deadline) {
+        _move = 0;
+        Integer cached = _cache.get(board.key());
+        if (cached != null
+            && board.movesMade() + depth(cached) < board.getLIMIT()) {
+            _move = move(cached);
+            return result(cached);
+        }
+        int result = search(board, deadline);
+        if (result != UNKNOWN
+            && board.movesMade() + _maxPly < board.getLIMIT()) {
+            remember(board.key(), pack(result, _move, _maxPly));
+        }
+        return result;
+    }
+
+    /** Return the code (see Move.code, without the capture bit) of the
+     *  winning move found by the last call to solve that returned WIN. */
+    int move() {
+        return _move;
+    }
+
+    /** Return the number of positions in the tree of the last search. */
+    int nodes() {
+        return _size;
+    }
+
+    /** Return the number of results cached. */
+    int cached() {
+        return _cache.size();
+    }
+
+    /** Return the result of a proof-number search of BOARD that stops at
+     *  time DEADLINE or when the tree is full, setting _move to the
+     *  winning move if it finds one and _maxPly to the depth of the
+     *  tree. */
+    private int search(Board board, long deadline) {
+        if (_pn == null) {
+            _pn = new int[_capacity];
+            _dn = new int[_capacity];
+            _first = new int[_capacity];
+            _count = new int[_capacity];
+            _moveOf = new int[_capacity];
+            _parent = new int[_capacity];
+        }
+        _size = 1;
+        _maxPly = 0;
+        _pn[0] = _dn[0] = 1;
+        _count[0] = -1;
+        _parent[0] = -1;
+        Piece side = board.turn();
+        for (int iter = 0; _pn[0] != 0 && _dn[0] != 0; iter += 1) {
+            if ((iter & (CLOCK_INTERVAL - 1)) == 0
+                && System.nanoTime() - deadline > 0) {
+                break;
+            }
+            int node = 0, ply = 0;
+            while (_count[node] >= 0) {
+                node = mostProving(node, ply % 2 == 0);
+                board.makeMove(_moveOf[node]);
+                ply += 1;
+            }
+            boolean full = !expand(board, node, ply, side);
+            _maxPly = Math.max(_maxPly, ply + 1);
+            for (; node != 0; node = _parent[node]) {
+                ply -= 1;
+                update(_parent[node], ply % 2 == 0);
+                board.retract();
+            }
+            if (full) {
+                break;
+            }
+        }
+        if (_pn[0] == 0) {
+            for (int c = _first[0]; c < _first[0] + _count[0]; c += 1) {
+                if (_pn[c] == 0) {
+                    _move = Move.squares(_moveOf[c]);
+                    break;
+                }
+            }
+            return WIN;
+        }
+        return _dn[0] == 0 ? NO_WIN : UNKNOWN;
+    }
+
+    /** Return the child of NODE to follow towards the most-proving leaf,
+     *  where OR is true iff the root's side is to move at NODE. */
+    private int mostProving(int node, boolean or) {
+        int end = _first[node] + _count[node];
+        for (int c = _first[node]; c < end; c += 1) {
+            if (or ? _pn[c] == _pn[node] : _dn[c] == _dn[node]) {
+                return c;
+            }
+        }
+        throw new Error("no most-proving child");
+    }
+
+    /** Expand NODE, the position on BOARD, PLY moves from the root, whose
+     *  side is SIDE, giving it a child for each legal move. Return false,
+     *  leaving NODE unexpanded, if the tree has no room for them. */
+    private boolean expand(Board board, int node, int ply, Piece side) {
+        int n = board.legalMoves(_moves, 0);
+        if (_size + n > _capacity) {
+            return false;
+        }
+        _first[node] = _size;
+        _count[node] = n;
+        for (int i = 0; i < n; i += 1) {
+            int c = _size;
+            _size += 1;
+            _moveOf[c] = _moves[i];
+            _parent[c] = node;
+            _count[c] = -1;
+            board.makeMove(_moves[i]);
+            Piece winner = board.winner();
+            if (winner == null) {
+                _pn[c] = _dn[c] = 1;
+            } else if (winner == side) {
+                _pn[c] = 0;
+                _dn[c] = INFINITY;
+            } else {
+                _pn[c] = INFINITY;
+                _dn[c] = 0;
+            }
+            board.retract();
+        }
+        update(node, ply % 2 == 0);
+        return true;
+    }
+
+    /** Set the proof and disproof numbers of the expanded NODE from those
+     *  of its children, where OR is true iff the root's side is to move
+     *  at NODE. A node with no children is disproven. */
+    private void update(int node, boolean or) {
+        int min = INFINITY, sum = 0;
+        int end = _first[node] + _count[node];
+        for (int c = _first[node]; c < end; c += 1) {
+            int a = or ? _pn[c] : _dn[c], b = or ? _dn[c] : _pn[c];
+            min = Math.min(min, a);
+            sum = Math.min(sum + b, INFINITY);
+        }
+        if (_count[node] == 0) {
+            min = or ? INFINITY : 0;
+            sum = or ? 0 : INFINITY;
+        }
+        _pn[node] = or ? min : sum;
+        _dn[node] = or ? sum : min;
+    }
+
+    /** Record that the position with key KEY has the packed result
+     *  ENTRY, on disk too if I have a cache file. */
+    private void remember(long key, int entry) {
+        _cache.put(key, entry);
+        if (_cacheFile == null) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(
+                     new FileOutputStream(_cacheFile.toFile(), true)))) {
+            out.writeLong(key);
+            out.writeInt(entry);
+        } catch (IOException excp) {
+            _cacheFile = null;
+        }
+    }
+
+    /** Read the results cached in FILE. */
+    private void readCache(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(
+                     new FileInputStream(file.toFile())))) {
+            while (true) {
+                long key;
+                try {
+                    key = in.readLong();
+                } catch (EOFException excp) {
+                    break;
+                }
+                _cache.put(key, in.readInt());
+            }
+        }
+    }
+
+    /** Return a cache entry for RESULT with move MOVE, found by a search
+     *  of depth DEPTH. */
+    private static int pack(int result, int move, int depth) {
+        return result | move << 2 | Math.min(depth, 0xff) << 14;
+    }
+
+    /** Return the result of cache entry ENTRY. */
+    private static int result(int entry) {
+        return entry & 3;
+    }
+
+    /** Return the move of cache entry ENTRY. */
+    private static int move(int entry) {
+        return entry >>> 2 & 0xfff;
+    }
+
+    /** Return the search depth of cache entry ENTRY. */
+    private static int depth(int entry) {
+        return entry >>> 14;
+    }
+
+    /** A proof or disproof number too large to matter. */
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    /** The number of expansions between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 1 << 6;
+
+    /** The largest number of positions in the tree. */
+    private final int _capacity;
+    /** The file in which results are cached, or null. */
+    private Path _cacheFile;
+    /** The cached results, packed as by pack, by Zobrist key. */
+    private final HashMap<Long, Integer> _cache = new HashMap<>();
+    /** The proof and disproof numbers of the positions in the tree,
+     *  the first of which is the root. */
+    private int[] _pn, _dn;
+    /** The index of the first child of each position in the tree, whose
+     *  children are contiguous. */
+    private int[] _first;
+    /** The number of children of each position, or -1 if it has not been
+     *  expanded. */
+    private int[] _count;
+    /** The code of the move leading to each position. */
+    private int[] _moveOf;
+    /** The index of the parent of each position (-1 for the root). */
+    private int[] _parent;
+    /** The number of positions in the tree. */
+    private int _size;
+    /** The depth of the tree. */
+    private int _maxPly;
+    /** The winning move found. */
+    private int _move;
+    /** Buffer for the codes of legal moves. */
+    private final int[] _moves = new int[Board.MAX_MOVES];
+}
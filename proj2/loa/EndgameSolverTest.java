@@ -0,0 +1,75 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.EndgameSolver.*;
+import static loa.Piece.*;
+import static loa.Move.mv;
+
+/** Tests of the EndgameSolver.
+ *  @author Pavel Gladkevich
+ */
+public class EndgameSolverTest {
+
+    /** Return a deadline SECONDS from now. */
+    private static long deadline(int seconds) {
+        return System.nanoTime() + seconds * 1_000_000_000L;
+    }
+
+    @Test
+    public void testWin() {
+        Board board = new Board(MachinePlayerTest.WIN_IN_ONE, WP);
+        EndgameSolver solver = new EndgameSolver();
+        assertTrue(applies(board));
+        assertFalse(applies(new Board()));
+        assertEquals(WIN, solver.solve(board, deadline(10)));
+        assertEquals(mv("f1-f3"), Move.mv(solver.move()));
+        assertEquals(new Board(MachinePlayerTest.WIN_IN_ONE, WP), board);
+        assertEquals(1, solver.cached());
+    }
+
+    @Test
+    public void testNoWin() {
+        Board board = new Board(MachinePlayerTest.WIN_IN_ONE, BP);
+        board.setMoveLimit(1);
+        EndgameSolver solver = new EndgameSolver();
+        assertEquals(NO_WIN, solver.solve(board, deadline(10)));
+        assertEquals(0, solver.cached());
+    }
+
+    @Test
+    public void testEndGame() {
+        Board board = new Board(Perft.END_GAME, WP);
+        EndgameSolver solver = new EndgameSolver();
+        int result = solver.solve(board, deadline(10));
+        if (result == WIN) {
+            assertTrue(board.isLegal(Move.mv(solver.move())));
+        }
+        assertEquals(new Board(Perft.END_GAME, WP), board);
+    }
+
+    @Test
+    public void testCacheFile() throws IOException {
+        Path file = Files.createTempFile("endgame", ".bin");
+        Files.delete(file);
+        try {
+            Board board = new Board(MachinePlayerTest.WIN_IN_ONE, WP);
+            EndgameSolver solver = new EndgameSolver(DEFAULT_NODES, file);
+            assertEquals(WIN, solver.solve(board, deadline(10)));
+            solver = new EndgameSolver(DEFAULT_NODES, file);
+            assertEquals(1, solver.cached());
+            assertEquals(WIN, solver.solve(board, deadline(10)));
+            assertEquals(0, solver.nodes());
+            assertEquals(mv("f1-f3"), Move.mv(solver.move()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
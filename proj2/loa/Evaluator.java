@@ -0,0 +1,110 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+import static loa.Piece.*;
+
+/** A static evaluation of LOA positions that are not over: a weighted sum
+ *  of the differences between white's and black's features, positive for
+ *  positions good for white. The features are
+ *    CONCENTRATION: the mean squared distance of a side's pieces from
+ *        their centre of mass (in sixteenths), which is less the closer
+ *        the pieces are to joining up;
+ *    CONNECTIVITY: four times the Euler number of a side's pieces (see
+ *        Board.quadSum), which falls as their regions join;
+ *    MOBILITY: the number of a side's legal moves;
+ *    WALLS: the number of a side's pieces on the edge of the board (see
+ *        Board.edgePieces), which have fewer neighbours and moves.
+ *  The Board keeps the first two up to date as moves are made, and the
+ *  last takes a few bit operations; only MOBILITY is computed afresh,
+ *  and only if its weight is not 0. The values of recent positions are
+ *  cached by Zobrist key, so an Evaluator is for use by one thread.
+ *  @author Pavel Gladkevich
+ */
+class Evaluator {
+
+    /** Indices of the features in an array of weights. */
+    static final int
+        CONCENTRATION = 0, CONNECTIVITY = 1, MOBILITY = 2, WALLS = 3;
+    /** The number of features. */
+    static final int NUM_FEATURES = 4;
+    /** The default weights of the features. */
+    static final int[] DEFAULT_WEIGHTS = { 4, 4, 8, 2 };
+
+    /** An Evaluator giving the features the weights WEIGHTS, one for each
+     *  feature, in the order of their indices. */
+    Evaluator(int... weights) {
+        if (weights.length != NUM_FEATURES) {
+            throw new IllegalArgumentException("need " + NUM_FEATURES
+                                               + " weights");
+        }
+        _weights = weights.clone();
+    }
+
+    /** An Evaluator with the default weights. */
+    Evaluator() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /** Return a copy of my weights. */
+    int[] weights() {
+        return _weights.clone();
+    }
+
+    /** Return the value of BOARD, whose game is not over. */
+    int evaluate(Board board) {
+        long key = board.key();
+        int k = (int) key & (CACHE_SIZE - 1);
+        if (_keys[k] == key && _known[k]) {
+            return _values[k];
+        }
+        int value = 0;
+        for (int f = 0; f < NUM_FEATURES; f += 1) {
+            if (_weights[f] != 0) {
+                value += _weights[f]
+                    * (feature(board, f, WP) - feature(board, f, BP));
+            }
+        }
+        _keys[k] = key;
+        _values[k] = value;
+        _known[k] = true;
+        return value;
+    }
+
+    /** Return feature F of SIDE's pieces on BOARD, with the sign that makes
+     *  larger values better. */
+    static int feature(Board board, int f, Piece side) {
+        switch (f) {
+        case CONCENTRATION:
+            int n = board.count(side);
+            return n == 0 ? 0 : -16 * board.dispersion(side) / (n * n);
+        case CONNECTIVITY:
+            return -board.quadSum(side);
+        case MOBILITY:
+            return board.mobility(side);
+        case WALLS:
+            return -board.edgePieces(side);
+        default:
+            throw new IllegalArgumentException("no feature " + f);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(_weights);
+    }
+
+    /** The number of values cached. */
+    private static final int CACHE_SIZE = 1 << 16;
+
+    /** The weights of the features. */
+    private final int[] _weights;
+    /** The keys of the positions whose values are cached. */
+    private final long[] _keys = new long[CACHE_SIZE];
+    /** The cached values. */
+    private final int[] _values = new int[CACHE_SIZE];
+    /** True for the entries of the cache that are filled. */
+    private final boolean[] _known = new boolean[CACHE_SIZE];
+}
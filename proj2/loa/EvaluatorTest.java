@@ -0,0 +1,47 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Evaluator.*;
+import static loa.Piece.*;
+
+/** Tests of the Evaluator.
+ *  @author Pavel Gladkevich
+ */
+public class EvaluatorTest {
+
+    @Test
+    public void testSymmetric() {
+        Board initial = new Board();
+        for (int f = 0; f < NUM_FEATURES; f += 1) {
+            assertEquals(feature(initial, f, BP), feature(initial, f, WP));
+        }
+        assertEquals(0, new Evaluator().evaluate(initial));
+    }
+
+    @Test
+    public void testWeights() {
+        Board b = new Board(BoardTest.BOARD1, BP);
+        int[] weights = new int[NUM_FEATURES];
+        int sum = 0;
+        for (int f = 0; f < NUM_FEATURES; f += 1) {
+            weights[f] = f + 1;
+            sum += (f + 1) * (feature(b, f, WP) - feature(b, f, BP));
+        }
+        Evaluator eval = new Evaluator(weights);
+        assertEquals(sum, eval.evaluate(b));
+        assertEquals(sum, eval.evaluate(b));
+        weights[0] = 0;
+        assertEquals(1, eval.weights()[0]);
+        assertEquals(-4 * (5 - 7), new Evaluator(0, 1, 0, 0).evaluate(b));
+        try {
+            new Evaluator(1, 2);
+            fail("too few weights");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+}
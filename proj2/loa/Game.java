@@ -102,6 +102,7 @@ class Game {
             case "#":
                 break;
             case "new":
+                stopThinking();
                 _board.clear();
                 _playing = true;
                 break;
@@ -109,9 +110,11 @@ class Game {
                 System.out.printf("%s%n", _board);
                 break;
             case "manual":
+                stopThinking();
                 manualCommand(command.group(2).toLowerCase());
                 break;
             case "auto":
+                stopThinking();
                 autoCommand(command.group(2).toLowerCase());
                 break;
             case "quit":
@@ -121,12 +124,17 @@ class Game {
                 seedCommand(command.group(2));
                 break;
             case "set":
+                stopThinking();
                 setCommand(command.group(2), command.group(3).toLowerCase(),
                            command.group(4).toLowerCase());
                 break;
             case "limit":
+                stopThinking();
                 limitCommand(command.group(2));
                 break;
+            case "perft":
+                perftCommand(command.group(2));
+                break;
             case "?": case "help":
                 help();
                 break;
@@ -139,6 +147,12 @@ class Game {
         }
     }
 
+    /** Tell both players to stop thinking in the background. */
+    private void stopThinking() {
+        _white.stopThinking();
+        _black.stopThinking();
+    }
+
     /** Return true iff white is a manual player. */
     boolean manualWhite() {
         return _white.isManual();
@@ -229,6 +243,21 @@ class Game {
         }
     }
 
+    /** Print the counts (see Perft) of the move sequences of length given
+     *  by the numeral DEPTH from the current position. */
+    private void perftCommand(String depth) {
+        try {
+            Perft perft = new Perft();
+            int d = Integer.parseInt(depth);
+            perft.count(_board, d);
+            System.out.printf("perft %d: %d leaves, %d captures, %d wins%n",
+                              d, perft.leaves(), perft.captures(),
+                              perft.wins());
+        } catch (NumberFormatException excp) {
+            error("Invalid number: %s%n", depth);
+        }
+    }
+
     /** Perform the move designated by LINE, if a valid move.  Return
      *  true iff LINE has the syntax of a move. */
     private boolean processMove(String line) {
@@ -241,6 +270,8 @@ class Game {
             error("illegal move: %s%n", line);
         } else {
             _board.makeMove(move);
+            _white.moveMade(move);
+            _black.moveMade(move);
         }
         return true;
     }
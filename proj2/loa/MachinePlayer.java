@@ -2,28 +2,100 @@
  * University of California.  All rights reserved. */
 package loa;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static loa.Piece.*;
+import static loa.Utils.*;
 
-/** An automated Player.
+/** An automated Player.  It chooses its moves by iterative deepening:
+ *  alpha-beta searches (by default, principal variation searches with
+ *  aspiration windows and late move reductions; see Searcher) to depths
+ *  1, 2, 3, ..., each of which tries the principal variation found by
+ *  the one before it first, until its time budget for the move runs
+ *  out.  The move played is the best one found by the deepest search
+ *  that finished.  Positions searched are recorded
+ *  in a transposition table, which saves searching them again when they
+ *  are reached by another order of moves or in a later iteration, and
+ *  supplies the move to try first when they must be searched again.
+ *  The other moves are ordered by captures, killer moves and history
+ *  scores (see Searcher); how often the first move tried causes a cutoff
+ *  measures how good that ordering is.  Positions at the end of the
+ *  search are valued by an Evaluator, whose feature weights may be set.
+ *
+ *  No search is needed in positions in the opening book, whose moves
+ *  were found in advance by longer searches, or in positions with few
+ *  pieces in which the endgame solver proves a win within a quarter of
+ *  the time budget (see OpeningBook and EndgameSolver).
+ *
+ *  With more than one thread, the search is a "lazy SMP" one: every
+ *  thread runs the same iterative deepening on a copy of the board of its
+ *  own (see Searcher), sharing nothing but the transposition table.  The
+ *  helper threads start at staggered depths and skip depths that another
+ *  thread has finished, so that they fill the table with results that
+ *  the others then use instead of searching.  The move played is that of
+ *  the deepest iteration finished by any thread.
+ *
+ *  When pondering is on and the opponent is a manual player, the search
+ *  goes on in the background while the opponent thinks: on the position
+ *  after the reply predicted by the principal variation, or, if there is
+ *  none, on the position after my move, which fills the shared
+ *  transposition table with results for all replies. If the prediction
+ *  is right, the next move continues that search for the usual time
+ *  budget; otherwise the search is stopped as soon as the opponent moves.
+ *  The pondering search has Searchers of its own, and what it found is
+ *  reported (by depth, value, nodes and the like) only once its move is
+ *  returned, so that those describe the last search whose move was
+ *  returned even while pondering.
  *  @author Pavel Gladkevich
  */
 class MachinePlayer extends Player {
 
-    /** A position-score magnitude indicating a win (for white if positive,
-     *  black if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
-    /** A magnitude greater than a normal value. */
-    private static final int INFTY = Integer.MAX_VALUE;
+    /** Default time budget for one move, in milliseconds. */
+    static final int DEFAULT_TIME = 100;
+    /** The deepest search tried. */
+    static final int MAX_DEPTH = Searcher.MAX_DEPTH;
 
     /** A new MachinePlayer with no piece or controller (intended to produce
-     *  a template). */
+     *  a template), with the default time budget and one thread. */
     MachinePlayer() {
-        this(null, null);
+        this(null, null, DEFAULT_TIME, 1);
+    }
+
+    /** A new MachinePlayer with no piece or controller (intended to produce
+     *  a template) that takes up to TIME milliseconds per move and
+     *  searches on THREADS threads. */
+    MachinePlayer(int time, int threads) {
+        this(null, null, time, threads);
     }
 
-    /** A MachinePlayer that plays the SIDE pieces in GAME. */
-    MachinePlayer(Piece side, Game game) {
+    /** A MachinePlayer that plays the SIDE pieces in GAME, taking up to
+     *  TIME milliseconds per move and searching on THREADS threads. */
+    MachinePlayer(Piece side, Game game, int time, int threads) {
         super(side, game);
+        if (time <= 0) {
+            throw new IllegalArgumentException("time budget must be positive");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        _time = time;
+        _searchers = new Searcher[threads];
+        _ponderSearchers = new Searcher[threads];
+        _book = OpeningBook.standard();
+        _solver = new EndgameSolver();
+    }
+
+    @Override
+    void moveMade(Move move) {
+        if (getBoard().turn() == side()) {
+            opponentMoved(getBoard());
+        }
+    }
+
+    @Override
+    void stopThinking() {
+        stopPondering();
     }
 
     @Override
@@ -31,7 +103,6 @@ class MachinePlayer extends Player {
         Move choice;
 
         assert side() == getGame().getBoard().turn();
-        int depth;
         choice = searchForMove();
         getGame().reportMove(choice);
         return choice.toString();
@@ -39,7 +110,14 @@ class MachinePlayer extends Player {
 
     @Override
     Player create(Piece piece, Game game) {
-        return new MachinePlayer(piece, game);
+        MachinePlayer player =
+            new MachinePlayer(piece, game, _time, _searchers.length);
+        player.setWeights(_weights);
+        player.useBook(_book);
+        player.useSolver(_solver);
+        player.setPondering(_ponder);
+        player.usePVS(_usePVS);
+        return player;
     }
 
     @Override
@@ -47,101 +125,423 @@ class MachinePlayer extends Player {
         return false;
     }
 
-    /** Return a move after searching the game tree to DEPTH>0 moves
-     *  from the current position. Assumes the game is not over. */
+    /** Return a move found by iterative deepening from the current
+     *  position within my time budget. Assumes the game is not over. */
     private Move searchForMove() {
         Board work = new Board(getBoard());
-        int value;
         assert side() == work.turn();
         assert !work.gameOver() : "_winnerKnown error probably";
-        _foundMove = null;
-        if (side() == WP) {
-            value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
+        Move move = resume(work, _time);
+        if (move == null) {
+            move = search(work, MAX_DEPTH, _time);
+        }
+        boolean manualOpponent =
+            side() == WP ? getGame().manualBlack() : getGame().manualWhite();
+        if (_ponder && manualOpponent) {
+            ponder(work, move);
+        }
+        return move;
+    }
+
+    /** Start searching in the background, as described above, for my
+     *  reply to the opponent's reply to MOVE on BOARD, which my last
+     *  search chose. Does nothing if MOVE ends the game. */
+    void ponder(Board board, Move move) {
+        stopPondering();
+        ArrayList<Move> pv = principalVariation();
+        Board next = new Board(board);
+        next.makeMove(move);
+        if (next.gameOver()) {
+            return;
+        }
+        _allReplies = pv.size() < 2 || !next.isLegal(pv.get(1));
+        if (!_allReplies) {
+            next.makeMove(pv.get(1));
+            if (next.gameOver()) {
+                return;
+            }
+        }
+        long start = System.nanoTime();
+        AtomicBoolean stop = new AtomicBoolean();
+        _ponderKey = next.key();
+        _ponderStop = stop;
+        Searcher[] searchers = _ponderSearchers;
+        _ponderThread = new Thread(() -> {
+            _pondered = search(next, MAX_DEPTH, start + PONDER_TIME,
+                               start + _time * 1_000_000L / SOLVER_SHARE,
+                               stop, searchers);
+        });
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+        debug(1, "pondering %s", _allReplies ? "all replies" : pv.get(1));
+    }
+
+    /** Note that the opponent has moved, giving BOARD, and stop pondering
+     *  unless I was pondering BOARD. */
+    void opponentMoved(Board board) {
+        if (_ponderThread == null) {
+            return;
+        }
+        if (!_allReplies && board.key() == _ponderKey) {
+            _ponderHits += 1;
         } else {
-            value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
-        }
-        return _foundMove;
-    }
-
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _foundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > BETA if SENSE==1,
-     *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
-    private int findMove(Board board, int depth, boolean saveMove,
-                         int sense, int alpha, int beta) {
-        Piece side = side();
-        if (depth == 0 || board.gameOver()) {
-            return heuristic(board);
-        }
-        Move[] moves = board.legalMoves().toArray(new Move[0]);
-        int bestScore = -INFTY * sense;
-        if (saveMove) {
-            _index = 0;
-        }
-
-        for (int i = 0; i < moves.length; i += 1) {
-            Move move = moves[i];
-            board.makeMove(move);
-            int score = findMove(board, depth - 1, false,
-                    sense * -1, alpha, beta);
-            if (score > bestScore) {
-                bestScore = score;
-                if (saveMove) {
-                    _index = i;
-                }
+            if (!_allReplies) {
+                _ponderMisses += 1;
             }
+            stopPondering();
+        }
+    }
+
+    /** If I am pondering BOARD, let that search go on for up to TIME more
+     *  milliseconds and return its move, making it the last search;
+     *  otherwise, stop pondering and return null. */
+    Move resume(Board board, long time) {
+        if (_ponderThread == null) {
+            return null;
+        }
+        if (_allReplies || board.key() != _ponderKey) {
+            stopPondering();
+            return null;
+        }
+        try {
+            _ponderThread.join(time);
+        } catch (InterruptedException excp) {
+            throw new Error("search interrupted");
+        }
+        stopPondering();
+        _last = _pondered;
+        _ponderSearchers = _searchers;
+        _searchers = _last._searchers;
+        return _last.best();
+    }
+
+    /** Stop pondering, if I am, and wait for the search to end. Its
+     *  outcome is left in _pondered. */
+    private void stopPondering() {
+        if (_ponderThread == null) {
+            return;
+        }
+        _ponderStop.set(true);
+        try {
+            _ponderThread.join();
+        } catch (InterruptedException excp) {
+            throw new Error("search interrupted");
+        }
+        _ponderThread = null;
+    }
+
+    /** Return true iff I am pondering. */
+    boolean pondering() {
+        return _ponderThread != null;
+    }
 
-            if (sense == 1 && side == WP || sense == -1 && side == BP) {
-                alpha = Math.max(score, alpha);
-            } else {
-                beta = Math.min(score, beta);
+    /** Ponder when playing a manual opponent iff PONDER (by default, I
+     *  do not). */
+    void setPondering(boolean ponder) {
+        _ponder = ponder;
+        if (!ponder) {
+            stopPondering();
+        }
+    }
+
+    /** Return the number of times the opponent played the reply I was
+     *  pondering. */
+    int ponderHits() {
+        return _ponderHits;
+    }
+
+    /** Return the number of times the opponent played a reply other than
+     *  the one I was pondering. */
+    int ponderMisses() {
+        return _ponderMisses;
+    }
+
+    /** Return the best move for the side to move on BOARD found by
+     *  iterative deepening, searching no deeper than MAXDEPTH and stopping
+     *  once TIME milliseconds have passed. The search to depth 1 always
+     *  finishes. BOARD is restored before returning. Assumes the game is
+     *  not over. Stops pondering first. */
+    Move search(Board board, int maxDepth, long time) {
+        stopPondering();
+        long start = System.nanoTime();
+        _last = search(board, maxDepth, start + time * 1_000_000L,
+                       start + time * 1_000_000L / SOLVER_SHARE,
+                       new AtomicBoolean(), _searchers);
+        return _last.best();
+    }
+
+    /** Return the outcome of a search for the best move for the side to
+     *  move on BOARD by iterative deepening on the threads of SEARCHERS,
+     *  searching no deeper than MAXDEPTH and stopping at time DEADLINE (as
+     *  given by System.nanoTime) or when STOP becomes true, after giving
+     *  the endgame solver until time SOLVERDEADLINE. The search to depth 1
+     *  always finishes. BOARD is restored before returning. Assumes the
+     *  game is not over. */
+    private Outcome search(Board board, int maxDepth, long deadline,
+                           long solverDeadline, AtomicBoolean stop,
+                           Searcher[] searchers) {
+        Outcome outcome = new Outcome(searchers);
+        known(board, solverDeadline, outcome);
+        if (outcome._known != null) {
+            return outcome;
+        }
+        if (_table == null && _useTable) {
+            _table = new TranspositionTable();
+        }
+        if (_table != null) {
+            _table.newSearch();
+        }
+        AtomicInteger completed = new AtomicInteger();
+        Thread[] helpers = new Thread[searchers.length - 1];
+        for (int k = 0; k < searchers.length; k += 1) {
+            if (searchers[k] == null) {
+                searchers[k] = new Searcher();
             }
-            if (alpha >= beta) {
-                board.retract();
-                break;
+            searchers[k].setOrdering(_useOrdering);
+            searchers[k].setPVS(_usePVS);
+            searchers[k].setWeights(_weights);
+            searchers[k].start(k == 0 ? board : new Board(board), _table,
+                               deadline, stop, completed, k == 0);
+        }
+        for (int k = 1; k < searchers.length; k += 1) {
+            Searcher helper = searchers[k];
+            int first = 1 + k % 2;
+            helpers[k - 1] = new Thread(() -> helper.iterate(first, maxDepth));
+            helpers[k - 1].setDaemon(true);
+            helpers[k - 1].start();
+        }
+        searchers[0].iterate(1, maxDepth);
+        stop.set(true);
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException excp) {
+                throw new Error("search interrupted");
+            }
+        }
+        outcome._result = searchers[0];
+        for (Searcher searcher : searchers) {
+            if (searcher.depth() > outcome._result.depth()) {
+                outcome._result = searcher;
+            }
+        }
+        return outcome;
+    }
+
+    /** Set the known move of OUTCOME and its value to the move for BOARD
+     *  in my opening book, or else to a winning move proven by my endgame
+     *  solver by time DEADLINE (as given by System.nanoTime), if there is
+     *  either. */
+    private void known(Board board, long deadline, Outcome outcome) {
+        if (_book != null) {
+            Move move = _book.move(board);
+            if (move != null) {
+                debug(1, "book move %s", move);
+                outcome._known = move;
+                outcome._knownValue = 0;
+                return;
             }
-            board.retract();
         }
-        if (saveMove) {
-            _foundMove = board.legalMoves().get(_index);
+        if (_solver != null && EndgameSolver.applies(board)
+            && _solver.solve(board, deadline) == EndgameSolver.WIN) {
+            Move move = Move.mv(_solver.move());
+            debug(1, "proven win: %s (%d nodes)", move, _solver.nodes());
+            outcome._known = move;
+            outcome._knownValue = board.turn() == WP
+                ? Searcher.WINNING_VALUE : -Searcher.WINNING_VALUE;
+        }
+    }
+
+    /** Play the moves in BOOK, if not null, without searching (by
+     *  default, those of OpeningBook.standard()). */
+    void useBook(OpeningBook book) {
+        _book = book;
+    }
+
+    /** Play the wins proven by SOLVER, if not null, without searching (by
+     *  default, a solver that caches its results in memory only). */
+    void useSolver(EndgameSolver solver) {
+        _solver = solver;
+    }
+
+    /** Use a transposition table in searches iff USE (by default, one
+     *  is used). */
+    void useTable(boolean use) {
+        _useTable = use;
+        if (!use) {
+            _table = null;
         }
+    }
+
+    /** Order moves by captures, killers and history in searches iff USE
+     *  (by default, they are). */
+    void useOrdering(boolean use) {
+        _useOrdering = use;
+    }
+
+    /** Use principal variation searches iff USE, and otherwise plain
+     *  alpha-beta searches (by default, principal variation searches are
+     *  used). */
+    void usePVS(boolean use) {
+        _usePVS = use;
+    }
+
+    /** Value positions with the feature weights WEIGHTS, one for each
+     *  feature of Evaluator in order. */
+    void setWeights(int... weights) {
+        _weights = new Evaluator(weights).weights();
+    }
+
+    /** Return the feature weights with which I value positions. */
+    int[] weights() {
+        return _weights.clone();
+    }
 
-        return bestScore;
+    /** Return the number of threads I search on. */
+    int threads() {
+        return _searchers.length;
     }
 
-    /** Return a search depth for the current position. */
-    private int chooseDepth() {
-        return 1;
+    /** Return the depth of the last search (0 if it played a book move
+     *  or proven win, or there was none). */
+    int depth() {
+        return searched() ? _last._result.depth() : 0;
     }
 
-    /** Method to return a numerical value for the current BOARD, that will
-     * be positive for a good board for WP and negative for a good board for BP,
-     * independently of who's turn it is or who the maximizer/minimizer is. */
-    private int heuristic(Board board) {
-        int score;
-        if (board.getWINNERKNOWN()) {
-            Piece winner = board.winner();
-            if (winner == WP) {
-                return WINNING_VALUE;
-            } else if (winner == BP) {
-                return -1 * WINNING_VALUE;
-            } else {
-                assert (winner == EMP);
-                return 0;
+    /** Return the value, positive for white, of the last search. */
+    int value() {
+        if (_last == null) {
+            return 0;
+        }
+        return searched() ? _last._result.value() : _last._knownValue;
+    }
+
+    /** Return the number of positions visited by the last search, by all
+     *  threads. */
+    long nodes() {
+        if (!searched()) {
+            return 0;
+        }
+        long nodes = 0;
+        for (Searcher searcher : _last._searchers) {
+            nodes += searcher.nodes();
+        }
+        return nodes;
+    }
+
+    /** Return the number of positions at which a move caused a cutoff in
+     *  the last search, by all threads. */
+    long cutoffs() {
+        if (!searched()) {
+            return 0;
+        }
+        long cutoffs = 0;
+        for (Searcher searcher : _last._searchers) {
+            cutoffs += searcher.cutoffs();
+        }
+        return cutoffs;
+    }
+
+    /** Return the fraction of the cutoffs in the last search (see
+     *  cutoffs) caused by the first move tried, or 0 if there were none. */
+    double firstMoveCutoffRate() {
+        long cutoffs = cutoffs(), first = 0;
+        if (cutoffs == 0) {
+            return 0;
+        }
+        for (Searcher searcher : _last._searchers) {
+            first += searcher.firstMoveCutoffs();
+        }
+        return (double) first / cutoffs;
+    }
+
+    /** Return the principal variation found by the last search: the best
+     *  line of play for both sides, starting with the move chosen. */
+    ArrayList<Move> principalVariation() {
+        if (!searched()) {
+            ArrayList<Move> result = new ArrayList<>();
+            if (_last != null) {
+                result.add(_last._known);
             }
+            return result;
         }
-        ArrayList<Integer> wR = (ArrayList<Integer>) board.getRegionSizes(WP);
-        ArrayList<Integer> bR = (ArrayList<Integer>) board.getRegionSizes(BP);
-        score = wR.get(0) - bR.get(0);
-        return score;
+        return _last._result.principalVariation();
+    }
+
+    /** Return true iff the last search searched, rather than playing a
+     *  book move or proven win. */
+    private boolean searched() {
+        return _last != null && _last._result != null;
+    }
+
+    /** The outcome of one search. */
+    private static class Outcome {
+        /** An outcome of a search on the threads of SEARCHERS. */
+        Outcome(Searcher[] searchers) {
+            _searchers = searchers;
+        }
+
+        /** Return the move chosen. */
+        Move best() {
+            return _known != null ? _known : _result.best();
+        }
+
+        /** The Searchers of each thread. */
+        private final Searcher[] _searchers;
+        /** The Searcher whose move was chosen, or null if a book move or
+         *  proven win was. */
+        private Searcher _result;
+        /** The book move or proven win chosen, or null. */
+        private Move _known;
+        /** The value of _known. */
+        private int _knownValue;
     }
 
-    /** Used to convey moves discovered by findMove. */
-    private Move _foundMove;
+    /** The fraction of the time budget the endgame solver may use is one
+     *  over this. */
+    private static final int SOLVER_SHARE = 4;
+    /** The longest time spent pondering, in nanoseconds. */
+    private static final long PONDER_TIME = 600_000_000_000L;
 
-    /** Used to store the index of the best move in LegalMoves(). */
-    private int _index;
+    /** Time budget for one move, in milliseconds. */
+    private final int _time;
+    /** True iff searches use a transposition table. */
+    private boolean _useTable = true;
+    /** True iff searches order moves by captures, killers and history. */
+    private boolean _useOrdering = true;
+    /** True iff searches are principal variation searches. */
+    private boolean _usePVS = true;
+    /** The weights of the features of the Evaluator. */
+    private int[] _weights = Evaluator.DEFAULT_WEIGHTS.clone();
+    /** The transposition table, created by the first search that uses
+     *  it, or null. */
+    private TranspositionTable _table;
+    /** The Searchers of each thread, the first being that of the thread
+     *  calling search. Each is created by the first search to use it. */
+    private Searcher[] _searchers;
+    /** The Searchers of each thread of the pondering search, which are
+     *  swapped with _searchers when its move is returned. */
+    private Searcher[] _ponderSearchers;
+    /** The outcome of the last search whose move was returned (the last
+     *  search), or null. */
+    private Outcome _last;
+    /** The opening book, or null. */
+    private OpeningBook _book;
+    /** The endgame solver, or null. */
+    private EndgameSolver _solver;
+    /** True iff I ponder when playing a manual opponent. */
+    private boolean _ponder;
+    /** The thread that is pondering, or null. */
+    private Thread _ponderThread;
+    /** Becomes true when the pondering search must stop. */
+    private AtomicBoolean _ponderStop;
+    /** The key of the position being pondered. */
+    private long _ponderKey;
+    /** True iff pondering the position before the opponent's reply, with
+     *  no reply predicted. */
+    private boolean _allReplies;
+    /** The outcome of the pondering search, set by its thread. */
+    private Outcome _pondered;
+    /** The numbers of predicted replies played and not played. */
+    private int _ponderHits, _ponderMisses;
 }
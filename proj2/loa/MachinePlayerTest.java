@@ -0,0 +1,195 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Move.mv;
+
+/** Tests of the MachinePlayer's search.
+ *  @author Pavel Gladkevich
+ */
+public class MachinePlayerTest {
+
+    /** A position in which white wins with f1-f3. */
+    static final Piece[][] WIN_IN_ONE = {
+        { EMP, EMP, EMP, EMP, EMP,  WP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP,  WP,  WP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        {  BP, EMP, EMP, EMP, EMP,  BP, EMP, EMP },
+    };
+
+    @Test
+    public void testWinInOne() {
+        Board board = new Board(WIN_IN_ONE, WP);
+        MachinePlayer player = new MachinePlayer();
+        player.useSolver(null);
+        assertEquals(mv("f1-f3"), player.search(board, 4, 1000));
+        assertEquals(1, player.depth());
+        assertTrue(player.value() > 0);
+        assertEquals(new Board(WIN_IN_ONE, WP), board);
+    }
+
+    @Test
+    public void testDepthLimit() {
+        Board board = new Board();
+        MachinePlayer player = new MachinePlayer();
+        player.useBook(null);
+        Move move = player.search(board, 3, 60000);
+        assertEquals(3, player.depth());
+        assertEquals(3, player.principalVariation().size());
+        assertEquals(move, player.principalVariation().get(0));
+        assertEquals(0, board.movesMade());
+        assertTrue(board.isLegal(move));
+    }
+
+    @Test
+    public void testTimeBudget() {
+        Board board = new Board(BoardTest.BOARD1, BP);
+        MachinePlayer player = new MachinePlayer();
+        long start = System.currentTimeMillis();
+        Move move = player.search(board, MachinePlayer.MAX_DEPTH, 200);
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(board.isLegal(move));
+        assertTrue(player.depth() >= 1);
+        assertTrue(player.depth() < MachinePlayer.MAX_DEPTH);
+        assertTrue("took " + elapsed + " ms", elapsed < 2000);
+    }
+
+    @Test
+    public void testTableSavesNodes() {
+        Board board = new Board(BoardTest.BOARD1, BP);
+        MachinePlayer player = new MachinePlayer();
+        player.useTable(false);
+        player.search(board, 4, 60000);
+        long plain = player.nodes();
+        player.useTable(true);
+        player.search(board, 4, 60000);
+        assertEquals(4, player.depth());
+        assertTrue(player.nodes() < plain);
+    }
+
+    @Test
+    public void testOrderingSavesNodes() {
+        Board board = new Board(BoardTest.BOARD1, BP);
+        MachinePlayer player = new MachinePlayer();
+        player.usePVS(false);
+        player.useOrdering(false);
+        Move plain = player.search(board, 4, 60000);
+        long nodes = player.nodes();
+        player = new MachinePlayer();
+        player.usePVS(false);
+        assertEquals(plain, player.search(board, 4, 60000));
+        assertTrue(player.nodes() < nodes);
+        assertTrue(player.cutoffs() > 0);
+        assertTrue(player.firstMoveCutoffRate() > 0.0);
+        assertTrue(player.firstMoveCutoffRate() <= 1.0);
+    }
+
+    @Test
+    public void testPVSSavesNodes() {
+        Board board = new Board(BoardTest.BOARD1, BP);
+        MachinePlayer player = new MachinePlayer();
+        player.usePVS(false);
+        player.search(board, 5, 60000);
+        long nodes = player.nodes();
+        player = new MachinePlayer();
+        Move move = player.search(board, 5, 60000);
+        assertEquals(5, player.depth());
+        assertTrue(board.isLegal(move));
+        assertTrue(player.nodes() < nodes);
+        assertEquals(new Board(BoardTest.BOARD1, BP), board);
+    }
+
+    @Test
+    public void testThreads() {
+        Board board = new Board(BoardTest.BOARD1, BP);
+        MachinePlayer player = new MachinePlayer(MachinePlayer.DEFAULT_TIME,
+                                                 4);
+        Move move = player.search(board, 4, 60000);
+        assertEquals(4, player.threads());
+        assertEquals(4, player.depth());
+        assertTrue(board.isLegal(move));
+        assertEquals(new Board(BoardTest.BOARD1, BP), board);
+        Board win = new Board(WIN_IN_ONE, WP);
+        assertEquals(mv("f1-f3"), player.search(win, 4, 1000));
+        long start = System.currentTimeMillis();
+        player.search(board, MachinePlayer.MAX_DEPTH, 200);
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("took " + elapsed + " ms", elapsed < 2000);
+    }
+
+    @Test
+    public void testKnownMoves() {
+        Board board = new Board(WIN_IN_ONE, WP);
+        MachinePlayer player = new MachinePlayer();
+        assertEquals(mv("f1-f3"), player.search(board, 4, 1000));
+        assertEquals(0, player.depth());
+        assertEquals(0, player.nodes());
+        assertTrue(player.value() > 0);
+        assertEquals(1, player.principalVariation().size());
+        assertEquals(new Board(WIN_IN_ONE, WP), board);
+        Board start = new Board();
+        HashMap<Long, Integer> entries = new HashMap<>();
+        entries.put(start.key(), mv("b1-b3").code());
+        player.useBook(OpeningBook.of(entries));
+        assertEquals(mv("b1-b3"), player.search(start, 4, 1000));
+        assertEquals(0, player.depth());
+    }
+
+    @Test
+    public void testPondering() throws InterruptedException {
+        Board board = new Board(BoardTest.BOARD1, BP);
+        MachinePlayer player = new MachinePlayer();
+        Move move = player.search(board, 3, 60000);
+        Move reply = player.principalVariation().get(1);
+        int depth = player.depth(), value = player.value();
+        long nodes = player.nodes();
+        ArrayList<Move> line = player.principalVariation();
+        player.ponder(board, move);
+        assertTrue(player.pondering());
+        Thread.sleep(100);
+        assertEquals(depth, player.depth());
+        assertEquals(value, player.value());
+        assertEquals(nodes, player.nodes());
+        assertEquals(line, player.principalVariation());
+        assertEquals(new Board(BoardTest.BOARD1, BP), board);
+        board.makeMove(move);
+        board.makeMove(reply);
+        player.opponentMoved(board);
+        assertTrue(player.pondering());
+        Move next = player.resume(board, 200);
+        assertFalse(player.pondering());
+        assertTrue(board.isLegal(next));
+        assertTrue(player.depth() > 0);
+        assertEquals(1, player.ponderHits());
+
+        ArrayList<Move> pv = player.principalVariation();
+        assertTrue(pv.size() > 1);
+        player.ponder(board, next);
+        assertTrue(player.pondering());
+        board.makeMove(next);
+        for (Move other : board.legalMoves()) {
+            if (!other.equals(pv.get(1))) {
+                board.makeMove(other);
+                break;
+            }
+        }
+        long start = System.currentTimeMillis();
+        player.opponentMoved(board);
+        long elapsed = System.currentTimeMillis() - start;
+        assertFalse(player.pondering());
+        assertEquals(1, player.ponderMisses());
+        assertTrue("took " + elapsed + " ms", elapsed < 1000);
+        assertNull(player.resume(board, 200));
+    }
+}
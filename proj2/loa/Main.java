@@ -9,6 +9,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Paths;
 
 import ucb.util.CommandArgs;
 
@@ -36,7 +37,12 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --time=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} "
+                            + "--weights=(-?\\d+(,-?\\d+)*){0,1} "
+                            + "--no-book{0,1} --endgame=(.+){0,1} "
+                            + "--ponder{0,1} "
+                            + "--=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -112,8 +118,49 @@ public class Main {
             }
         }
 
-        return new Game(view, log, reporter, manualPlayer,
-                        new MachinePlayer(), options.contains("--strict"));
+        int time = MachinePlayer.DEFAULT_TIME;
+        if (options.contains("--time")) {
+            time = options.getInt("--time");
+            if (time <= 0) {
+                usage();
+            }
+        }
+        int threads = 1;
+        if (options.contains("--threads")) {
+            threads = options.getInt("--threads");
+            if (threads <= 0) {
+                usage();
+            }
+        }
+
+        MachinePlayer machine = new MachinePlayer(time, threads);
+        if (options.contains("--weights")) {
+            String[] weights = options.getFirst("--weights").split(",");
+            if (weights.length != Evaluator.NUM_FEATURES) {
+                usage();
+            }
+            int[] values = new int[weights.length];
+            for (int k = 0; k < weights.length; k += 1) {
+                values[k] = Integer.parseInt(weights[k]);
+            }
+            machine.setWeights(values);
+        }
+        machine.setPondering(options.contains("--ponder"));
+        if (options.contains("--no-book")) {
+            machine.useBook(null);
+        }
+        if (options.contains("--endgame")) {
+            try {
+                machine.useSolver(new EndgameSolver(
+                    EndgameSolver.DEFAULT_NODES,
+                    Paths.get(options.getFirst("--endgame"))));
+            } catch (IOException excp) {
+                error(1, "Could not read endgame cache");
+            }
+        }
+
+        return new Game(view, log, reporter, manualPlayer, machine,
+                        options.contains("--strict"));
     }
 
     /** Print brief description of the command-line format. */
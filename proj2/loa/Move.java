@@ -46,6 +46,22 @@ final class Move {
         return _moves[from.index()][to.index()][capture ? 1 : 0];
     }
 
+    /** Return a move from the square with index FROM to that with index
+     *  TO, capturing iff CAPTURE. Returns null if FROM-TO is not a valid
+     *  move. */
+    static Move mv(int from, int to, boolean capture) {
+        return _moves[from][to][capture ? 1 : 0];
+    }
+
+    /** Return the move whose code (see code()) is CODE, or null if CODE
+     *  is 0. */
+    static Move mv(int code) {
+        if (code == 0) {
+            return null;
+        }
+        return _moves[code >> 6 & 63][code & 63][code >> 12];
+    }
+
     /** Return a move from FROM to TO with isCapture() false. */
     static Move mv(Square from, Square to) {
         return mv(from, to, false);
@@ -71,6 +87,21 @@ final class Move {
         return _captureMove;
     }
 
+    /** Return an int denoting this move: the index of the destination
+     *  square in bits 0-5, that of the starting square in bits 6-11, and
+     *  bit 12 set iff it is a capture. Codes are never 0, so 0 can denote
+     *  no move. Moves are made, searched and stored in this form where
+     *  creating Moves or Lists of them would cost too much. */
+    int code() {
+        return _code;
+    }
+
+    /** Return CODE without its capture bit: a code that denotes the same
+     *  squares whether or not it is a capture. */
+    static int squares(int code) {
+        return code & SQUARES_MASK;
+    }
+
     /** Return the length of this move (number of squares moved). */
     int length() {
         return _from.distance(_to);
@@ -86,6 +117,7 @@ final class Move {
         assert from.isValidMove(to);
         _from = from; _to = to;
         _capture = capture;
+        _code = from.index() << 6 | to.index() | (capture ? CAPTURE_BIT : 0);
         _captureMove = _capture ? this : new Move(from, to, true);
     }
 
@@ -93,10 +125,17 @@ final class Move {
     private final Square _from, _to;
     /** True iff this Move records a capture. */
     private final boolean _capture;
+    /** The code denoting me. */
+    private final int _code;
     /** When this is not a capture move, the Move with the same getFrom()
      *  and getTo() as this, but with isCapture() true. */
     private final Move _captureMove;
 
+    /** The bit of a code that marks a capture. */
+    static final int CAPTURE_BIT = 1 << 12;
+    /** The bits of a code giving the squares. */
+    private static final int SQUARES_MASK = CAPTURE_BIT - 1;
+
     /** The set of all possible Moves, indexed by row and column of
      *  start, row and column of destination, and whether Move denotes
      *  a capture. */
@@ -0,0 +1,205 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** A table of the moves to play in positions near the start of the game,
+ *  found in advance by long searches, so that a MachinePlayer need not
+ *  spend its time on them in every game. Positions are identified by
+ *  their Zobrist keys (see Board.key).
+ *
+ *  A book is stored in a compact binary file: the int MAGIC, the number
+ *  of entries, and then for each entry, in increasing order of key, the
+ *  key (a long) and the move (a short holding its Move.code, without the
+ *  capture bit). The book in the resource BOOK is built with
+ *      java loa.OpeningBook FILE [PLIES [MSEC [THREADS]]]
+ *  which writes to FILE a book for every position in which one side has
+ *  played only book moves and the other any moves, in the first PLIES
+ *  moves (by default 3) of a game, each searched for MSEC milliseconds
+ *  (by default 2000) on THREADS threads (by default one per processor).
+ *  @author Pavel Gladkevich
+ */
+class OpeningBook {
+
+    /** The name of the resource holding the standard book. */
+    static final String BOOK = "loa/book.bin";
+    /** The first int of a book file. */
+    static final int MAGIC = 0x4c4f4142;
+
+    /** An empty book. */
+    OpeningBook() {
+        this(new long[0], new short[0]);
+    }
+
+    /** A book whose entries are the moves with codes MOVES in the positions
+     *  with keys KEYS, which are in increasing order. */
+    private OpeningBook(long[] keys, short[] moves) {
+        _keys = keys;
+        _moves = moves;
+    }
+
+    /** Return the book in the resource BOOK, or an empty book if there is
+     *  none or it cannot be read. */
+    static synchronized OpeningBook standard() {
+        if (_standard == null) {
+            _standard = new OpeningBook();
+            InputStream in =
+                OpeningBook.class.getClassLoader().getResourceAsStream(BOOK);
+            if (in != null) {
+                try {
+                    _standard = read(in);
+                } catch (IOException excp) {
+                    /* Play without a book. */
+                }
+            }
+        }
+        return _standard;
+    }
+
+    /** Return the book read from IN, which is closed afterwards. */
+    static OpeningBook read(InputStream in) throws IOException {
+        try (DataInputStream data =
+                 new DataInputStream(new BufferedInputStream(in))) {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("not an opening book");
+            }
+            int n = data.readInt();
+            long[] keys = new long[n];
+            short[] moves = new short[n];
+            for (int k = 0; k < n; k += 1) {
+                keys[k] = data.readLong();
+                moves[k] = data.readShort();
+                if (k > 0 && keys[k] <= keys[k - 1]) {
+                    throw new IOException("opening book out of order");
+                }
+            }
+            return new OpeningBook(keys, moves);
+        }
+    }
+
+    /** Return a book of the moves with codes ENTRIES.get(K) in the
+     *  positions with keys K. */
+    static OpeningBook of(Map<Long, Integer> entries) {
+        TreeMap<Long, Integer> sorted = new TreeMap<>(entries);
+        long[] keys = new long[sorted.size()];
+        short[] moves = new short[sorted.size()];
+        int k = 0;
+        for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+            keys[k] = entry.getKey();
+            moves[k] = (short) Move.squares(entry.getValue());
+            k += 1;
+        }
+        return new OpeningBook(keys, moves);
+    }
+
+    /** Write me to OUT, which is closed afterwards. */
+    void write(OutputStream out) throws IOException {
+        try (DataOutputStream data =
+                 new DataOutputStream(new BufferedOutputStream(out))) {
+            data.writeInt(MAGIC);
+            data.writeInt(_keys.length);
+            for (int k = 0; k < _keys.length; k += 1) {
+                data.writeLong(_keys[k]);
+                data.writeShort(_moves[k]);
+            }
+        }
+    }
+
+    /** Return the number of positions in me. */
+    int size() {
+        return _keys.length;
+    }
+
+    /** Return my move in BOARD, or null if there is none or it is not
+     *  legal there. */
+    Move move(Board board) {
+        int k = Arrays.binarySearch(_keys, board.key());
+        if (k < 0) {
+            return null;
+        }
+        Move move = Move.mv(_moves[k]);
+        return move != null && board.isLegal(move) ? move : null;
+    }
+
+    /** Build a book as described above, from ARGS. */
+    public static void main(String... args) throws IOException {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println("Usage: java loa.OpeningBook FILE "
+                               + "[PLIES [MSEC [THREADS]]]");
+            System.exit(1);
+        }
+        int plies = args.length > 1 ? Integer.parseInt(args[1])
+            : DEFAULT_PLIES;
+        int time = args.length > 2 ? Integer.parseInt(args[2])
+            : DEFAULT_TIME;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+            : Runtime.getRuntime().availableProcessors();
+        MachinePlayer player = new MachinePlayer(time, threads);
+        player.useBook(null);
+        TreeMap<Long, Integer> entries = new TreeMap<>();
+        build(new Board(), plies, true, player, time, entries);
+        build(new Board(), plies, false, player, time, entries);
+        try (FileOutputStream out = new FileOutputStream(args[0])) {
+            of(entries).write(out);
+        }
+        System.err.printf("%d positions%n", entries.size());
+    }
+
+    /** Add to ENTRIES the moves found by PLAYER searching for TIME
+     *  milliseconds in the positions up to PLIES moves from BOARD in which
+     *  one side has played only moves in ENTRIES and the other any moves,
+     *  where the side that plays book moves is on move at BOARD iff OURS.
+     *  BOARD is restored before returning. */
+    private static void build(Board board, int plies, boolean ours,
+                              MachinePlayer player, int time,
+                              Map<Long, Integer> entries) {
+        if (plies == 0 || board.gameOver()) {
+            return;
+        }
+        if (ours) {
+            Integer move = entries.get(board.key());
+            if (move == null) {
+                Move best = player.search(new Board(board),
+                                          MachinePlayer.MAX_DEPTH, time);
+                move = best.code();
+                entries.put(board.key(), move);
+                System.err.printf("%s: %s, depth %d, value %d%n",
+                                  board.getMOVES(), best, player.depth(),
+                                  player.value());
+            }
+            board.makeMove(move);
+            build(board, plies - 1, false, player, time, entries);
+            board.retract();
+        } else {
+            for (Move move : board.legalMoves()) {
+                board.makeMove(move);
+                build(board, plies - 1, true, player, time, entries);
+                board.retract();
+            }
+        }
+    }
+
+    /** Default depth of the book, in moves. */
+    private static final int DEFAULT_PLIES = 3;
+    /** Default search time per position when building, in milliseconds. */
+    private static final int DEFAULT_TIME = 2000;
+
+    /** The book in the resource BOOK, once read. */
+    private static OpeningBook _standard;
+
+    /** The keys of the positions in the book, in increasing order. */
+    private final long[] _keys;
+    /** The codes of the moves for the positions with keys _keys. */
+    private final short[] _moves;
+}
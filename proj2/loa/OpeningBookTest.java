@@ -0,0 +1,69 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Move.mv;
+
+/** Tests of the OpeningBook.
+ *  @author Pavel Gladkevich
+ */
+public class OpeningBookTest {
+
+    @Test
+    public void testLookup() throws IOException {
+        Board board = new Board();
+        HashMap<Long, Integer> entries = new HashMap<>();
+        entries.put(board.key(), mv("b1-b3").code());
+        board.makeMove(mv("b1-b3"));
+        entries.put(board.key(), mv("a2-c2").code());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OpeningBook.of(entries).write(out);
+        OpeningBook book =
+            OpeningBook.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, book.size());
+        assertEquals(mv("a2-c2"), book.move(board));
+        board.makeMove(mv("a2-c2"));
+        assertNull(book.move(board));
+        assertEquals(mv("b1-b3"), book.move(new Board()));
+    }
+
+    @Test
+    public void testIllegalMove() {
+        Board board = new Board();
+        HashMap<Long, Integer> entries = new HashMap<>();
+        entries.put(board.key(), mv("a2-c2").code());
+        assertNull(OpeningBook.of(entries).move(board));
+    }
+
+    @Test(expected = IOException.class)
+    public void testBadFile() throws IOException {
+        OpeningBook.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }));
+    }
+
+    @Test
+    public void testStandard() {
+        OpeningBook book = OpeningBook.standard();
+        assertSame(book, OpeningBook.standard());
+        assertTrue(book.size() > 0);
+        Board board = new Board();
+        Move move = book.move(board);
+        assertNotNull(move);
+        assertTrue(board.isLegal(move));
+        board.makeMove(move);
+        for (Move reply : board.legalMoves()) {
+            board.makeMove(reply);
+            Move answer = book.move(board);
+            assertNotNull(answer);
+            assertTrue(board.isLegal(answer));
+            board.retract();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Piece.*;
+
+/** Counts of the move sequences from a position, for checking the move
+ *  generator against known totals and timing it, run as
+ *      java loa.Perft [DEPTH]
+ *  which counts to depths 1 .. DEPTH (by default 4) from each of the
+ *  test positions (see positions()), and prints, for each, the number of
+ *  leaves, how many of the moves reaching them were captures, how many
+ *  ended the game with a win, and the leaves counted per second.
+ *
+ *  A leaf is the position at the end of a sequence of DEPTH legal moves,
+ *  or of a shorter one whose last move ended the game. The "perft N"
+ *  command of a Game prints the same counts for its current position.
+ *  @author Pavel Gladkevich
+ */
+public class Perft {
+
+    /** Default depth. */
+    static final int DEFAULT_DEPTH = 4;
+
+    /** Names of the test positions. */
+    static final String[] NAMES = { "initial", "middle game", "end game" };
+
+    /** A middle-game position, with black to move. */
+    static final Piece[][] MIDDLE_GAME = {
+        { EMP,  BP, EMP,  BP,  BP, EMP, EMP, EMP },
+        {  WP, EMP, EMP, EMP, EMP, EMP, EMP,  WP },
+        {  WP, EMP, EMP, EMP,  BP,  BP, EMP,  WP },
+        {  WP, EMP,  BP, EMP, EMP,  WP, EMP, EMP },
+        {  WP, EMP,  WP,  WP, EMP,  WP, EMP, EMP },
+        {  WP, EMP, EMP, EMP,  BP, EMP, EMP,  WP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP,  BP,  BP,  BP, EMP,  BP,  BP, EMP },
+    };
+
+    /** An end-game position, with white to move, in which many moves end
+     *  the game. */
+    static final Piece[][] END_GAME = {
+        { EMP, EMP, EMP, EMP, EMP,  WP, EMP, EMP },
+        { EMP, EMP,  BP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP,  WP,  WP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP,  BP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP,  WP, EMP, EMP, EMP, EMP, EMP, EMP },
+        {  BP, EMP, EMP, EMP, EMP,  BP, EMP, EMP },
+    };
+
+    /** Return new Boards holding the test positions, in the order of
+     *  NAMES. */
+    static Board[] positions() {
+        return new Board[] {
+            new Board(),
+            new Board(MIDDLE_GAME, BP),
+            new Board(END_GAME, WP)
+        };
+    }
+
+    /** Print the counts for the test positions, to the depth given in
+     *  ARGS. */
+    public static void main(String... args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_DEPTH;
+        Board[] positions = positions();
+        for (int k = 0; k < positions.length; k += 1) {
+            System.out.printf("%s:%n", NAMES[k]);
+            System.out.printf("%6s %14s %12s %12s %12s%n", "depth",
+                              "leaves", "captures", "wins", "leaves/s");
+            for (int d = 1; d <= depth; d += 1) {
+                Perft perft = new Perft();
+                long start = System.nanoTime();
+                perft.count(positions[k], d);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%6d %14d %12d %12d %12.0f%n", d,
+                                  perft.leaves(), perft.captures(),
+                                  perft.wins(), perft.leaves() / seconds);
+            }
+        }
+    }
+
+    /** Add the counts of the move sequences of length DEPTH (at most
+     *  Searcher.MAX_DEPTH) from BOARD to my totals. BOARD is restored
+     *  before returning. */
+    void count(Board board, int depth) {
+        if (depth < 0 || depth > Searcher.MAX_DEPTH) {
+            throw new IllegalArgumentException("bad perft depth: " + depth);
+        }
+        if (depth == 0 || board.gameOver()) {
+            _leaves += 1;
+        } else {
+            count(board, depth, 0);
+        }
+    }
+
+    /** Add the counts of the move sequences of length DEPTH from BOARD,
+     *  whose game is not over, PLY moves from the starting position. */
+    private void count(Board board, int depth, int ply) {
+        int[] moves = _moves[ply];
+        int n = board.legalMoves(moves, 0);
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            board.makeMove(move);
+            if (depth == 1 || board.gameOver()) {
+                Piece winner = board.winner();
+                _leaves += 1;
+                if (winner != null && winner != EMP) {
+                    _wins += 1;
+                }
+                if (Move.squares(move) != move) {
+                    _captures += 1;
+                }
+            } else {
+                count(board, depth - 1, ply + 1);
+            }
+            board.retract();
+        }
+    }
+
+    /** Return the number of leaves counted. */
+    long leaves() {
+        return _leaves;
+    }
+
+    /** Return the number of leaves reached by a capture. */
+    long captures() {
+        return _captures;
+    }
+
+    /** Return the number of leaves reached by a move that ended the game
+     *  with a win (for either side). */
+    long wins() {
+        return _wins;
+    }
+
+    /** Buffers for the codes of the legal moves at each ply. */
+    private final int[][] _moves =
+        new int[Searcher.MAX_DEPTH][Board.MAX_MOVES];
+    /** The number of leaves counted. */
+    private long _leaves;
+    /** The number of leaves reached by a capture. */
+    private long _captures;
+    /** The number of leaves reached by a winning move. */
+    private long _wins;
+}
@@ -0,0 +1,74 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of the move generator by Perft.
+ *  @author Pavel Gladkevich
+ */
+public class PerftTest {
+
+    /** The leaves, captures and wins to depths 1 .. 3 from each of the
+     *  test positions. */
+    private static final long[][][] COUNTS = {
+        { { 36, 4, 0 }, { 1244, 156, 0 }, { 44952, 5980, 0 } },
+        { { 37, 11, 0 }, { 1349, 414, 0 }, { 47376, 11586, 0 } },
+        { { 24, 1, 0 }, { 483, 24, 0 }, { 11330, 498, 19 } },
+    };
+
+    /** Return the leaves, captures and wins to DEPTH from BOARD, counted
+     *  with legalMoves() and Move objects. */
+    private static long[] slowCount(Board board, int depth) {
+        long[] counts = new long[3];
+        for (Move move : board.legalMoves()) {
+            board.makeMove(move);
+            if (depth == 1 || board.gameOver()) {
+                counts[0] += 1;
+                counts[1] += board.getMOVES().get(board.movesMade() - 1)
+                    .isCapture() ? 1 : 0;
+                Piece winner = board.winner();
+                counts[2] += winner == BP || winner == WP ? 1 : 0;
+            } else {
+                long[] sub = slowCount(board, depth - 1);
+                for (int k = 0; k < 3; k += 1) {
+                    counts[k] += sub[k];
+                }
+            }
+            board.retract();
+        }
+        return counts;
+    }
+
+    @Test
+    public void testCounts() {
+        Board[] positions = Perft.positions();
+        for (int k = 0; k < positions.length; k += 1) {
+            for (int d = 1; d <= COUNTS[k].length; d += 1) {
+                Perft perft = new Perft();
+                perft.count(positions[k], d);
+                long[] counts = {
+                    perft.leaves(), perft.captures(), perft.wins()
+                };
+                String msg = Perft.NAMES[k] + " to depth " + d;
+                assertArrayEquals(msg, COUNTS[k][d - 1], counts);
+                assertArrayEquals(msg, counts, slowCount(positions[k], d));
+            }
+        }
+        assertEquals(Perft.positions()[2], positions[2]);
+    }
+
+    @Test
+    public void testOver() {
+        Board won = new Board(MachinePlayerTest.WIN_IN_ONE, WP);
+        won.makeMove(Move.mv("f1-f3"));
+        Perft perft = new Perft();
+        perft.count(won, 3);
+        perft.count(new Board(), 0);
+        assertEquals(2, perft.leaves());
+        assertEquals(0, perft.captures());
+    }
+}
@@ -43,6 +43,17 @@ public abstract class Player {
      *  it appears in. */
     abstract Player create(Piece piece, Game game);
 
+    /** Note that MOVE has just been made on getBoard(), by either side.
+     *  By default, does nothing. */
+    void moveMade(Move move) {
+    }
+
+    /** Stop any thinking I am doing in the background, because the game
+     *  is about to change other than by a move.  By default, does
+     *  nothing. */
+    void stopThinking() {
+    }
+
     /** This player's side. */
     private final Piece _side;
     /** The game this player is part of. */
@@ -0,0 +1,662 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static loa.Piece.*;
+import static loa.TranspositionTable.*;
+import static loa.Utils.*;
+
+/** One thread's part of a MachinePlayer's search: an iterative-deepening
+ *  alpha-beta search of a Board of its own, with its own move stack and
+ *  principal variations, sharing only a transposition table and a stop
+ *  signal with the Searchers of other threads. All values are positive
+ *  for good positions for white and negative for good positions for
+ *  black, whichever side is to move.
+ *
+ *  The moves at each position are tried in the order most likely to give
+ *  an early cutoff: the move of the principal variation or of the
+ *  transposition table; then captures; then the two most recent killer
+ *  moves at the same ply (moves that caused cutoffs at sibling
+ *  positions); and then the remaining moves by their history scores,
+ *  which grow with each cutoff they cause anywhere in the search.
+ *
+ *  By default, the search is a principal variation search (see pvs), a
+ *  negamax alpha-beta search that searches only the first move at each
+ *  position with the full window and the others with a null window just
+ *  above the best value so far, searching them again with the full
+ *  window only if they turn out better. Late quiet moves are searched
+ *  less deeply, and again at full depth if they turn out better, and
+ *  each iteration after the first searches within an aspiration window
+ *  around the value of the one before it, widening it when the value
+ *  falls outside. Otherwise, it is a plain full-window alpha-beta search
+ *  (see findMove).
+ *  @author Pavel Gladkevich
+ */
+class Searcher {
+
+    /** A position-score magnitude indicating a win (for white if positive,
+     *  black if negative). */
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
+    /** A magnitude greater than a normal value. */
+    static final int INFTY = Integer.MAX_VALUE;
+    /** The deepest search tried. */
+    static final int MAX_DEPTH = 64;
+    /** The number of nodes between checks of the clock and the stop
+     *  signal. */
+    private static final int CLOCK_INTERVAL = 1 << 10;
+
+    /** Half the width of the first aspiration window. */
+    private static final int ASPIRATION = 120;
+    /** Factor by which an aspiration window widens on failing. */
+    private static final int ASPIRATION_GROWTH = 4;
+    /** Least depth at which moves are reduced. */
+    private static final int LMR_DEPTH = 3;
+    /** Number of moves at each position never reduced. */
+    private static final int LMR_MOVES = 3;
+    /** Number of moves at each position reduced by only one ply. */
+    private static final int LMR_LATE_MOVES = 12;
+
+    /** Ordering scores of the best move, captures and killer moves. Other
+     *  moves score their history, which is kept below KILLER_SCORE. */
+    private static final int
+        BEST_SCORE = 1 << 30,
+        CAPTURE_SCORE = 1 << 29,
+        KILLER_SCORE = 1 << 28;
+
+    /** Prepare to search BOARD, which I alone may change (though it is
+     *  restored after each iteration), using TABLE (if not null) and
+     *  stopping at time DEADLINE (as given by System.nanoTime) or when
+     *  STOP becomes true. COMPLETED is the deepest iteration finished by
+     *  any Searcher sharing TABLE. If MAIN, I report my progress and my
+     *  first iteration always finishes. */
+    void start(Board board, TranspositionTable table, long deadline,
+               AtomicBoolean stop, AtomicInteger completed, boolean main) {
+        _board = board;
+        _table = table;
+        _deadline = deadline;
+        _stop = stop;
+        _completed = completed;
+        _main = main;
+        _nodes = 0;
+        _depth = 0;
+        _value = 0;
+        _best = null;
+        _pvLength[0] = 0;
+        _lastPVLength = 0;
+        _cutoffs = _firstCutoffs = 0;
+        _reSearches = _aspirationFails = 0;
+        for (int[] killers : _killers) {
+            killers[0] = killers[1] = 0;
+        }
+        for (int[] history : _history) {
+            for (int i = 0; i < history.length; i += 1) {
+                history[i] >>= 2;
+            }
+        }
+    }
+
+    /** Evaluate positions with the feature weights WEIGHTS (see
+     *  Evaluator). */
+    void setWeights(int[] weights) {
+        if (!Arrays.equals(weights, _evaluator.weights())) {
+            _evaluator = new Evaluator(weights);
+        }
+    }
+
+    /** Use a principal variation search as described above iff PVS;
+     *  otherwise, use plain alpha-beta search. */
+    void setPVS(boolean pvs) {
+        _pvs = pvs;
+    }
+
+    /** Order moves as described above iff ORDER; otherwise, try them in
+     *  the order of Board.legalMoves, except for the best move. */
+    void setOrdering(boolean order) {
+        _ordering = order;
+    }
+
+    /** Search by iterative deepening, starting at depth FIRST and going
+     *  no deeper than MAXDEPTH, until stopped. Unless I am the main
+     *  Searcher, I skip depths that another Searcher has already
+     *  finished. Returns when an iteration finds a forced win or loss. */
+    void iterate(int first, int maxDepth) {
+        int sense = _board.turn() == WP ? 1 : -1;
+        for (int depth = first; depth <= maxDepth; depth += 1) {
+            if (!_main) {
+                depth = Math.max(depth, _completed.get() + 1);
+                if (depth > maxDepth) {
+                    break;
+                }
+            }
+            int value = _pvs ? aspirate(depth, sense)
+                : iteration(depth, sense, -INFTY, INFTY);
+            if (_stopped || _foundMove == null) {
+                break;
+            }
+            _best = _foundMove;
+            _depth = depth;
+            _value = value;
+            savePV();
+            _completed.accumulateAndGet(depth, Math::max);
+            if (_main) {
+                debug(1, "depth %d: %s value %d, %d nodes, %.1f%% first-move "
+                      + "cutoffs, %d re-searches, %d aspiration fails",
+                      depth, _best, value, _nodes,
+                      100.0 * _firstCutoffs / Math.max(_cutoffs, 1),
+                      _reSearches, _aspirationFails);
+            }
+            if (Math.abs(value) >= WINNING_VALUE - MAX_DEPTH) {
+                break;
+            }
+        }
+    }
+
+    /** Return the value of a search of _board to DEPTH, where SENSE is 1
+     *  if white is to move and -1 otherwise, within an aspiration window
+     *  around the value of the last iteration that finished, widening the
+     *  window and searching again while the value falls outside it. */
+    private int aspirate(int depth, int sense) {
+        if (_depth == 0 || Math.abs(_value) >= WINNING_VALUE - MAX_DEPTH) {
+            return iteration(depth, sense, -INFTY, INFTY);
+        }
+        int delta = ASPIRATION;
+        int alpha = _value - delta, beta = _value + delta;
+        while (true) {
+            int value = iteration(depth, sense, alpha, beta);
+            if (_stopped) {
+                return value;
+            } else if (value <= alpha && alpha > -INFTY) {
+                delta = Math.min(delta * ASPIRATION_GROWTH, WINNING_VALUE);
+                alpha = value > -WINNING_VALUE + delta ? value - delta
+                    : -INFTY;
+            } else if (value >= beta && beta < INFTY) {
+                delta = Math.min(delta * ASPIRATION_GROWTH, WINNING_VALUE);
+                beta = value < WINNING_VALUE - delta ? value + delta : INFTY;
+            } else {
+                return value;
+            }
+            _aspirationFails += 1;
+        }
+    }
+
+    /** Return the value (positive for white) of a search of _board to
+     *  DEPTH within the window ALPHA .. BETA, where SENSE is 1 if white is
+     *  to move and -1 otherwise, setting _foundMove to the best move. */
+    private int iteration(int depth, int sense, int alpha, int beta) {
+        _stopped = false;
+        _followPV = true;
+        _foundMove = null;
+        if (_pvs) {
+            return sense == 1 ? pvs(_board, depth, 0, 1, alpha, beta)
+                : -pvs(_board, depth, 0, -1, -beta, -alpha);
+        }
+        return findMove(_board, depth, 0, sense, alpha, beta);
+    }
+
+    /** Return the best move found by the last iteration that finished, or
+     *  null if none did. */
+    Move best() {
+        return _best;
+    }
+
+    /** Return the depth of the last iteration that finished. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the value of the last iteration that finished. */
+    int value() {
+        return _value;
+    }
+
+    /** Return the number of positions visited since start. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of positions since start at which a move caused
+     *  a cutoff. */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /** Return the number of positions since start at which the first move
+     *  tried caused a cutoff. */
+    long firstMoveCutoffs() {
+        return _firstCutoffs;
+    }
+
+    /** Return the principal variation found by the last iteration that
+     *  finished. */
+    ArrayList<Move> principalVariation() {
+        ArrayList<Move> result = new ArrayList<>();
+        for (int i = 0; i < _lastPVLength; i += 1) {
+            result.add(Move.mv(_lastPV[i]));
+        }
+        return result;
+    }
+
+    /** Find a move from position BOARD, PLY moves from the root of the
+     *  search, and return its value, recording the move found in _foundMove
+     *  iff PLY is 0. The move should have maximal value or have value >
+     *  BETA if SENSE==1, and minimal value or value < ALPHA if SENSE==-1.
+     *  Searches up to DEPTH levels.  Searching at level 0 simply returns a
+     *  static estimate of the board value and does not set _foundMove. If
+     *  the game is over on BOARD, does not set _foundMove. Sets _stopped,
+     *  and returns a meaningless value, if it runs out of time or is told
+     *  to stop (which never happens to the main Searcher's search to
+     *  depth 1). */
+    private int findMove(Board board, int depth, int ply, int sense,
+                         int alpha, int beta) {
+        _pvLength[ply] = ply;
+        _nodes += 1;
+        if ((_nodes & (CLOCK_INTERVAL - 1)) == 0 && (_depth > 0 || !_main)
+            && (_stop.get() || System.nanoTime() - _deadline > 0)) {
+            _stopped = true;
+        }
+        if (_stopped) {
+            return 0;
+        }
+        if (depth == 0 || board.gameOver()) {
+            return heuristic(board, ply);
+        }
+        long key = board.key();
+        int first = 0;
+        if (_table != null) {
+            long entry = _table.probe(key);
+            if (entry != 0) {
+                first = moveCode(entry);
+                int value = fromTable(TranspositionTable.value(entry), ply);
+                int bound = bound(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth
+                    && (bound == EXACT || bound == LOWER && value >= beta
+                        || bound == UPPER && value <= alpha)) {
+                    return value;
+                }
+            }
+        }
+        int[] moves = _moves[ply];
+        int n = board.legalMoves(moves, 0);
+        if (n == 0) {
+            return heuristic(board, ply);
+        }
+        int pv = pvMove(ply);
+        int side = sense == 1 ? 1 : 0;
+        int[] scores = _scores[ply];
+        score(moves, scores, n, pv != 0 ? pv : first, ply, side);
+        int alpha0 = alpha, beta0 = beta;
+        int bestMove = 0;
+        int bestScore = -INFTY * sense;
+        for (int i = 0; i < n; i += 1) {
+            int move = next(moves, scores, i, n);
+            board.makeMove(move);
+            int score = findMove(board, depth - 1, ply + 1, -sense,
+                                 alpha, beta);
+            board.retract();
+            _followPV = false;
+            if (_stopped) {
+                return 0;
+            }
+            if (sense == 1 ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                bestMove = move;
+                updatePV(move, ply);
+                if (ply == 0) {
+                    _foundMove = Move.mv(move);
+                }
+            }
+            if (sense == 1) {
+                alpha = Math.max(score, alpha);
+            } else {
+                beta = Math.min(score, beta);
+            }
+            if (alpha >= beta) {
+                cutoff(move, i, ply, side, depth);
+                break;
+            }
+        }
+        if (_table != null) {
+            int bound = bestScore <= alpha0 ? UPPER
+                : bestScore >= beta0 ? LOWER : EXACT;
+            _table.store(key, depth, bound, toTable(bestScore, ply),
+                         bestMove);
+        }
+        return bestScore;
+    }
+
+    /** Return the value of BOARD, PLY moves from the root, for the side
+     *  to move, whose sense is SENSE (1 for white, -1 for black), found by
+     *  a principal variation search to DEPTH in the window ALPHA .. BETA,
+     *  recording the move found in _foundMove iff PLY is 0. As for
+     *  findMove, the value is exact if it is strictly inside the window,
+     *  and otherwise a bound; and the search stops by setting _stopped. */
+    private int pvs(Board board, int depth, int ply, int sense, int alpha,
+                    int beta) {
+        _pvLength[ply] = ply;
+        _nodes += 1;
+        if ((_nodes & (CLOCK_INTERVAL - 1)) == 0 && (_depth > 0 || !_main)
+            && (_stop.get() || System.nanoTime() - _deadline > 0)) {
+            _stopped = true;
+        }
+        if (_stopped) {
+            return 0;
+        }
+        if (depth == 0 || board.gameOver()) {
+            return sense * heuristic(board, ply);
+        }
+        long key = board.key();
+        int first = 0;
+        if (_table != null) {
+            long entry = _table.probe(key);
+            if (entry != 0) {
+                first = moveCode(entry);
+                int value =
+                    sense * fromTable(TranspositionTable.value(entry), ply);
+                int bound = sense == 1 ? bound(entry) : flip(bound(entry));
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth
+                    && (bound == EXACT || bound == LOWER && value >= beta
+                        || bound == UPPER && value <= alpha)) {
+                    return value;
+                }
+            }
+        }
+        int[] moves = _moves[ply];
+        int n = board.legalMoves(moves, 0);
+        if (n == 0) {
+            return sense * heuristic(board, ply);
+        }
+        int pv = pvMove(ply);
+        int side = sense == 1 ? 1 : 0;
+        int[] scores = _scores[ply];
+        score(moves, scores, n, pv != 0 ? pv : first, ply, side);
+        int alpha0 = alpha;
+        int bestMove = 0;
+        int bestScore = -INFTY;
+        for (int i = 0; i < n; i += 1) {
+            int move = next(moves, scores, i, n);
+            board.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -pvs(board, depth - 1, ply + 1, -sense, -beta,
+                             -alpha);
+            } else {
+                int r = reduction(depth, i, move, scores[i]);
+                score = -pvs(board, depth - 1 - r, ply + 1, -sense,
+                             -alpha - 1, -alpha);
+                if (score > alpha && r > 0) {
+                    _reSearches += 1;
+                    score = -pvs(board, depth - 1, ply + 1, -sense,
+                                 -alpha - 1, -alpha);
+                }
+                if (score > alpha && score < beta) {
+                    _reSearches += 1;
+                    score = -pvs(board, depth - 1, ply + 1, -sense, -beta,
+                                 -alpha);
+                }
+            }
+            board.retract();
+            _followPV = false;
+            if (_stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                updatePV(move, ply);
+                if (ply == 0) {
+                    _foundMove = Move.mv(move);
+                }
+            }
+            alpha = Math.max(score, alpha);
+            if (alpha >= beta) {
+                cutoff(move, i, ply, side, depth);
+                break;
+            }
+        }
+        if (_table != null) {
+            int bound = bestScore <= alpha0 ? UPPER
+                : bestScore >= beta ? LOWER : EXACT;
+            _table.store(key, depth, sense == 1 ? bound : flip(bound),
+                         toTable(sense * bestScore, ply), bestMove);
+        }
+        return bestScore;
+    }
+
+    /** Return the number of plies by which to reduce the search to DEPTH
+     *  of MOVE, the Ith move tried at a position, whose ordering score is
+     *  SCORE: none for the first few moves, captures, killers and the
+     *  best move, or near the leaves, and otherwise one, or two for
+     *  moves tried very late in deep searches. */
+    private static int reduction(int depth, int i, int move, int score) {
+        if (depth < LMR_DEPTH || i < LMR_MOVES || score >= KILLER_SCORE
+            || Move.squares(move) != move) {
+            return 0;
+        }
+        return i >= LMR_LATE_MOVES && depth > LMR_DEPTH + 1 ? 2 : 1;
+    }
+
+    /** Return the bound type BOUND as seen by the other side: LOWER and
+     *  UPPER swapped. */
+    private static int flip(int bound) {
+        return bound == EXACT ? EXACT : LOWER + UPPER - bound;
+    }
+
+    /** Return SCORE, the value of a position PLY moves from the root, as
+     *  it is to be stored in the transposition table: wins are counted
+     *  from the position rather than the root. */
+    private static int toTable(int score, int ply) {
+        if (score >= WINNING_VALUE - MAX_DEPTH) {
+            return score + ply;
+        } else if (score <= -WINNING_VALUE + MAX_DEPTH) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /** Return the value of a position PLY moves from the root whose
+     *  transposition table value is SCORE (the inverse of toTable). */
+    private static int fromTable(int score, int ply) {
+        if (score >= WINNING_VALUE - MAX_DEPTH) {
+            return score - ply;
+        } else if (score <= -WINNING_VALUE + MAX_DEPTH) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /** Set SCORES[0 .. N-1] to the ordering scores of the moves with codes
+     *  MOVES[0 .. N-1], made by SIDE (0 for black, 1 for white) at PLY,
+     *  where BEST is the code of the move of the principal variation or
+     *  transposition table, or 0. */
+    private void score(int[] moves, int[] scores, int n, int best, int ply,
+                       int side) {
+        int[] killers = _killers[ply];
+        int[] history = _history[side];
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i], squares = Move.squares(move);
+            if (squares == Move.squares(best)) {
+                scores[i] = BEST_SCORE;
+            } else if (!_ordering) {
+                scores[i] = -i;
+            } else if (move != squares) {
+                scores[i] = CAPTURE_SCORE;
+            } else if (move == killers[0]) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == killers[1]) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[squares];
+            }
+        }
+    }
+
+    /** Return the move with the highest score among MOVES[I .. N-1], whose
+     *  scores are SCORES[I .. N-1], having swapped it and its score with
+     *  MOVES[I] and SCORES[I]. Ties go to the earlier move. */
+    private static int next(int[] moves, int[] scores, int i, int n) {
+        int b = i;
+        for (int k = i + 1; k < n; k += 1) {
+            if (scores[k] > scores[b]) {
+                b = k;
+            }
+        }
+        int move = moves[b], score = scores[b];
+        moves[b] = moves[i];
+        scores[b] = scores[i];
+        moves[i] = move;
+        scores[i] = score;
+        return move;
+    }
+
+    /** Record that MOVE, the Ith tried at PLY, made by SIDE, caused a
+     *  cutoff in a search to DEPTH. */
+    private void cutoff(int move, int i, int ply, int side, int depth) {
+        _cutoffs += 1;
+        if (i == 0) {
+            _firstCutoffs += 1;
+        }
+        if (Move.squares(move) != move) {
+            return;
+        }
+        int[] killers = _killers[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        int[] history = _history[side];
+        history[move] += depth * depth;
+        if (history[move] >= KILLER_SCORE) {
+            for (int k = 0; k < history.length; k += 1) {
+                history[k] >>= 1;
+            }
+        }
+    }
+
+    /** Return the code of the move at PLY of the principal variation of
+     *  the previous iteration if the search is still following that
+     *  variation, and otherwise 0. */
+    private int pvMove(int ply) {
+        if (_followPV && ply < _lastPVLength) {
+            return _lastPV[ply];
+        }
+        _followPV = false;
+        return 0;
+    }
+
+    /** Record the move with code MOVE, followed by the principal variation
+     *  of the position after it, as the principal variation at PLY. */
+    private void updatePV(int move, int ply) {
+        _pv[ply][ply] = move;
+        int end = _pvLength[ply + 1];
+        for (int i = ply + 1; i < end; i += 1) {
+            _pv[ply][i] = _pv[ply + 1][i];
+        }
+        _pvLength[ply] = Math.max(end, ply + 1);
+    }
+
+    /** Save the principal variation of the search that just finished, for
+     *  ordering the next one. */
+    private void savePV() {
+        _lastPVLength = _pvLength[0];
+        System.arraycopy(_pv[0], 0, _lastPV, 0, _lastPVLength);
+    }
+
+    /** Return the value of BOARD, PLY moves from the root: if the game is
+     *  over, WINNING_VALUE less PLY for a win for white (so that quicker
+     *  wins are better), the negation of that for a win for black, or 0 for
+     *  a tie; and otherwise the static evaluation of my Evaluator. */
+    private int heuristic(Board board, int ply) {
+        Piece winner = board.winner();
+        if (winner == null) {
+            return _evaluator.evaluate(board);
+        } else if (winner == WP) {
+            return WINNING_VALUE - ply;
+        } else if (winner == BP) {
+            return -WINNING_VALUE + ply;
+        } else {
+            return 0;
+        }
+    }
+
+    /** The board searched. */
+    private Board _board;
+    /** The shared transposition table, or null. */
+    private TranspositionTable _table;
+    /** The time (as given by System.nanoTime) at which the search must
+     *  stop. */
+    private long _deadline;
+    /** Becomes true when all Searchers must stop. */
+    private AtomicBoolean _stop;
+    /** The deepest iteration finished by any Searcher. */
+    private AtomicInteger _completed;
+    /** True iff I am the main Searcher. */
+    private boolean _main;
+    /** True iff the search is a principal variation search. */
+    private boolean _pvs = true;
+    /** True iff moves are ordered by captures, killers and history. */
+    private boolean _ordering = true;
+    /** The static evaluation of positions. */
+    private Evaluator _evaluator = new Evaluator();
+
+    /** True iff the current iteration was stopped. */
+    private boolean _stopped;
+    /** Number of positions visited since start. */
+    private long _nodes;
+    /** Depth of the last iteration that finished. */
+    private int _depth;
+    /** Value of the last iteration that finished. */
+    private int _value;
+    /** Best move of the last iteration that finished. */
+    private Move _best;
+
+    /** Used to convey moves discovered by findMove. */
+    private Move _foundMove;
+
+    /** The moves from the position at each ply of the current search, as
+     *  codes (see Move.code): the search allocates nothing per position,
+     *  and the moves at one ply cannot be overwritten by those at the
+     *  next. */
+    private final int[][] _moves = new int[MAX_DEPTH + 1][Board.MAX_MOVES];
+
+    /** The ordering scores of the moves in _moves. */
+    private final int[][] _scores = new int[MAX_DEPTH + 1][Board.MAX_MOVES];
+    /** The two most recent quiet (non-capturing) moves to cause a cutoff
+     *  at each ply, most recent first. */
+    private final int[][] _killers = new int[MAX_DEPTH + 1][2];
+    /** History scores of quiet moves by black and white, indexed by move
+     *  code. Each cutoff a move causes adds the square of the depth of
+     *  the search; they are scaled down at each start, and halved if one
+     *  grows too large. */
+    private final int[][] _history = new int[2][Move.CAPTURE_BIT];
+    /** Number of positions at which a move caused a cutoff. */
+    private long _cutoffs;
+    /** Number of positions at which the first move tried caused a
+     *  cutoff. */
+    private long _firstCutoffs;
+    /** Number of moves searched again since start by the principal
+     *  variation search, after a null-window or reduced search found them
+     *  better than the best so far. */
+    private long _reSearches;
+    /** Number of times since start that a value fell outside its
+     *  aspiration window. */
+    private long _aspirationFails;
+
+    /** The principal variations of the current iteration, as move codes:
+     *  _pv[k][k .. _pvLength[k] - 1] is the best line found from the
+     *  position at ply k. */
+    private final int[][] _pv = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+    /** The ends of the lines in _pv. */
+    private final int[] _pvLength = new int[MAX_DEPTH + 2];
+    /** The principal variation of the last iteration that finished. */
+    private final int[] _lastPV = new int[MAX_DEPTH + 1];
+    /** The length of _lastPV. */
+    private int _lastPVLength;
+    /** True iff every move on the path to the current node was the
+     *  corresponding move of _lastPV. */
+    private boolean _followPV;
+}
@@ -0,0 +1,336 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ucb.util.CommandArgs;
+
+import static loa.Piece.*;
+
+/** A headless match between two engines, run as
+ *      java loa.Tournament [ --games=N ] [ --time=MSEC ] [ --depth=D ]
+ *                          [ --threads=T ] [ --plies=P ] [ --seed=S ]
+ *                          [ --weights1=C,E,M,W ] [ --weights2=C,E,M,W ]
+ *  The engines are MachinePlayers searching on one thread each, with the
+ *  feature weights WEIGHTS1 and WEIGHTS2 (by default, both
+ *  Evaluator.DEFAULT_WEIGHTS), taking up to MSEC milliseconds (by default
+ *  100) and searching no deeper than D (by default MachinePlayer.MAX_DEPTH)
+ *  for each move. They play N games (by default 100, rounded up to an
+ *  even number) in pairs: each pair starts from the same opening of P
+ *  random moves (by default 4), chosen by a Random seeded from S (by
+ *  default 61) and the number of the pair, as the seed command seeds a
+ *  Game, with each engine playing black once. T games (by default one
+ *  per processor) are played at once. The engines play every move by
+ *  search, without the opening book or endgame solver, so that the match
+ *  compares only their evaluations and the depths and rates reported
+ *  count only real searches.
+ *
+ *  Games are played directly on a Board, with no View, Reporter or
+ *  Player: Game reads its commands from the standard input and has only
+ *  one template for automated players, so it cannot play two different
+ *  engines against each other. At the end, the runner reports the first
+ *  engine's wins, losses and draws, its score and Elo difference with a
+ *  95% confidence interval, and for each engine the positions searched
+ *  per second and the mean depth of its searches.
+ *  @author Pavel Gladkevich
+ */
+public class Tournament {
+
+    /** Default number of games. */
+    static final int DEFAULT_GAMES = 100;
+    /** Default length of the random openings, in moves. */
+    static final int DEFAULT_PLIES = 4;
+    /** Default seed of the random openings. */
+    static final long DEFAULT_SEED = 61;
+
+    /** Run the tournament described by ARGS (see above). */
+    public static void main(String... args) {
+        CommandArgs options =
+            new CommandArgs("--games=(\\d+){0,1} --time=(\\d+){0,1} "
+                            + "--depth=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--plies=(\\d+){0,1} --seed=(-?\\d+){0,1} "
+                            + "--weights1=(-?\\d+(,-?\\d+)*){0,1} "
+                            + "--weights2=(-?\\d+(,-?\\d+)*){0,1}",
+                            args);
+        if (!options.ok()) {
+            usage();
+        }
+        int games = intOption(options, "--games", DEFAULT_GAMES);
+        int threads = intOption(options, "--threads",
+                                Runtime.getRuntime().availableProcessors());
+        try {
+            Tournament tournament =
+                new Tournament(weights(options, "--weights1"),
+                               weights(options, "--weights2"),
+                               intOption(options, "--time",
+                                         MachinePlayer.DEFAULT_TIME),
+                               intOption(options, "--depth",
+                                         MachinePlayer.MAX_DEPTH),
+                               intOption(options, "--plies", DEFAULT_PLIES),
+                               options.contains("--seed")
+                               ? Long.parseLong(options.getFirst("--seed"))
+                               : DEFAULT_SEED);
+            tournament.run(games, threads, System.err);
+            tournament.report(System.out);
+        } catch (IllegalArgumentException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            usage();
+        }
+    }
+
+    /** Print a usage message and exit. */
+    private static void usage() {
+        System.err.println("Usage: java loa.Tournament [ --games=N ] "
+                           + "[ --time=MSEC ] [ --depth=D ]");
+        System.err.println("           [ --threads=T ] [ --plies=P ] "
+                           + "[ --seed=S ]");
+        System.err.println("           [ --weights1=C,E,M,W ] "
+                           + "[ --weights2=C,E,M,W ]");
+        System.exit(1);
+    }
+
+    /** Return the value of option NAME in OPTIONS, or DEFAULTVALUE if it
+     *  is absent. */
+    private static int intOption(CommandArgs options, String name,
+                                 int defaultValue) {
+        return options.contains(name) ? options.getInt(name) : defaultValue;
+    }
+
+    /** Return the weights given by option NAME in OPTIONS, or the default
+     *  weights if it is absent. */
+    private static int[] weights(CommandArgs options, String name) {
+        if (!options.contains(name)) {
+            return Evaluator.DEFAULT_WEIGHTS.clone();
+        }
+        String[] fields = options.getFirst(name).split(",");
+        int[] weights = new int[fields.length];
+        for (int k = 0; k < fields.length; k += 1) {
+            weights[k] = Integer.parseInt(fields[k]);
+        }
+        return weights;
+    }
+
+    /** A tournament between engines valuing positions with the feature
+     *  weights WEIGHTS1 and WEIGHTS2, taking up to TIME milliseconds and
+     *  searching no deeper than DEPTH for each move, from openings of
+     *  PLIES random moves chosen with SEED. */
+    Tournament(int[] weights1, int[] weights2, int time, int depth,
+               int plies, long seed) {
+        if (time <= 0 || depth <= 0 || plies < 0) {
+            throw new IllegalArgumentException("bad time, depth or plies");
+        }
+        _weights = new int[][] {
+            new Evaluator(weights1).weights(),
+            new Evaluator(weights2).weights()
+        };
+        _time = time;
+        _depth = Math.min(depth, MachinePlayer.MAX_DEPTH);
+        _plies = plies;
+        _seed = seed;
+    }
+
+    /** Play GAMES games (rounded up to an even number), THREADS at a time,
+     *  adding their results to my totals and writing progress to LOG. */
+    void run(int games, int threads, PrintStream log) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Result>> results = new ArrayList<>();
+        int first = _games;
+        for (int k = first; k < first + games; k += 2) {
+            Board opening = opening(k / 2);
+            results.add(executor.submit(() -> play(opening, 0)));
+            results.add(executor.submit(() -> play(opening, 1)));
+        }
+        try {
+            for (Future<Result> result : results) {
+                add(result.get());
+                if (_games % PROGRESS_INTERVAL == 0) {
+                    log.printf("%d games: %d wins, %d losses, %d draws%n",
+                               _games, _wins, _losses, _draws);
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new Error("game failed: " + excp);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Return the opening of pair N of games: the position after _plies
+     *  random moves (stopping before the last if it would end the game). */
+    Board opening(int n) {
+        Random random = new Random(_seed + n);
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < _plies; k += 1) {
+            int count = board.legalMoves(moves, 0);
+            board.makeMove(moves[random.nextInt(count)]);
+            if (board.gameOver()) {
+                board.retract();
+                break;
+            }
+        }
+        return board;
+    }
+
+    /** Play a game from OPENING in which the first engine plays black if
+     *  BLACK is 0 and white if it is 1, and return its result. */
+    private Result play(Board opening, int black) {
+        Board board = new Board(opening);
+        MachinePlayer[] engines = new MachinePlayer[2];
+        for (int e = 0; e < 2; e += 1) {
+            engines[e] = new MachinePlayer();
+            engines[e].setWeights(_weights[e]);
+            engines[e].useBook(null);
+            engines[e].useSolver(null);
+        }
+        Result result = new Result();
+        while (!board.gameOver()) {
+            int e = board.turn() == BP ? black : 1 - black;
+            long start = System.nanoTime();
+            Move move = engines[e].search(new Board(board), _depth, _time);
+            result._nanos[e] += System.nanoTime() - start;
+            result._nodes[e] += engines[e].nodes();
+            result._depths[e] += engines[e].depth();
+            result._moves[e] += 1;
+            board.makeMove(move);
+        }
+        Piece winner = board.winner();
+        if (winner == EMP) {
+            result._score = 1;
+        } else if ((winner == BP) == (black == 0)) {
+            result._score = 2;
+        }
+        return result;
+    }
+
+    /** Add RESULT to my totals. */
+    private void add(Result result) {
+        _games += 1;
+        if (result._score == 2) {
+            _wins += 1;
+        } else if (result._score == 1) {
+            _draws += 1;
+        } else {
+            _losses += 1;
+        }
+        for (int e = 0; e < 2; e += 1) {
+            _nanos[e] += result._nanos[e];
+            _nodes[e] += result._nodes[e];
+            _depths[e] += result._depths[e];
+            _moves[e] += result._moves[e];
+        }
+    }
+
+    /** Write a report of the games played so far to OUT. */
+    void report(PrintStream out) {
+        double[] interval = eloInterval(_wins, _losses, _draws);
+        out.printf("%d games, %d ms per move: %d wins, %d losses, "
+                   + "%d draws for the first engine%n", _games, _time,
+                   _wins, _losses, _draws);
+        out.printf("score %.3f, Elo %+.0f (95%% interval %+.0f to %+.0f)%n",
+                   score(), elo(score()), interval[0], interval[1]);
+        for (int e = 0; e < 2; e += 1) {
+            out.printf("engine %d %s: %.0f nodes/s, mean depth %.2f%n",
+                       e + 1, Arrays.toString(_weights[e]),
+                       _nodes[e] / Math.max(_nanos[e] / 1e9, 1e-9),
+                       (double) _depths[e] / Math.max(_moves[e], 1));
+        }
+    }
+
+    /** Return the number of games played. */
+    int games() {
+        return _games;
+    }
+
+    /** Return the number of games won, lost and drawn by the first
+     *  engine. */
+    int[] record() {
+        return new int[] { _wins, _losses, _draws };
+    }
+
+    /** Return the first engine's score: the fraction of games it won,
+     *  counting draws as half a win, or 0.5 if none were played. */
+    double score() {
+        return _games == 0 ? 0.5 : (_wins + _draws / 2.0) / _games;
+    }
+
+    /** Return the Elo rating difference at which the expected score is
+     *  SCORE (infinite for 0 or 1). */
+    static double elo(double score) {
+        return 400 * Math.log10(score / (1 - score));
+    }
+
+    /** Return the bounds of the 95% confidence interval of the Elo rating
+     *  difference given WINS, LOSSES and DRAWS, from the normal
+     *  approximation to the distribution of the mean score per game. */
+    static double[] eloInterval(int wins, int losses, int draws) {
+        int n = wins + losses + draws;
+        if (n == 0) {
+            return new double[] {
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY
+            };
+        }
+        double score = (wins + draws / 2.0) / n;
+        double variance = (wins * (1 - score) * (1 - score)
+                           + losses * score * score
+                           + draws * (0.5 - score) * (0.5 - score)) / n;
+        double margin = Z95 * Math.sqrt(variance / n);
+        return new double[] {
+            elo(Math.max(score - margin, 0)), elo(Math.min(score + margin, 1))
+        };
+    }
+
+    /** The result of one game. */
+    private static class Result {
+        /** The first engine's score: 2 for a win, 1 for a draw and 0 for
+         *  a loss. */
+        private int _score;
+        /** Time spent searching by each engine, in nanoseconds. */
+        private final long[] _nanos = new long[2];
+        /** Positions searched by each engine. */
+        private final long[] _nodes = new long[2];
+        /** Sums of the depths of each engine's searches. */
+        private final long[] _depths = new long[2];
+        /** Number of moves made by each engine. */
+        private final int[] _moves = new int[2];
+    }
+
+    /** The normal deviate of a two-sided 95% confidence interval. */
+    private static final double Z95 = 1.96;
+    /** Number of games between reports of progress. */
+    private static final int PROGRESS_INTERVAL = 100;
+
+    /** The feature weights of the two engines. */
+    private final int[][] _weights;
+    /** Time limit for each move, in milliseconds. */
+    private final int _time;
+    /** Depth limit of each move's search. */
+    private final int _depth;
+    /** Length of the random openings. */
+    private final int _plies;
+    /** Seed of the random openings. */
+    private final long _seed;
+    /** Number of games played. */
+    private int _games;
+    /** Numbers of games won, lost and drawn by the first engine. */
+    private int _wins, _losses, _draws;
+    /** Total time spent searching by each engine, in nanoseconds. */
+    private final long[] _nanos = new long[2];
+    /** Total positions searched by each engine. */
+    private final long[] _nodes = new long[2];
+    /** Total of the depths of each engine's searches. */
+    private final long[] _depths = new long[2];
+    /** Total number of moves made by each engine. */
+    private final long[] _moves = new long[2];
+}
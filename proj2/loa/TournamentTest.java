@@ -0,0 +1,44 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Tournament.*;
+
+/** Tests of the Tournament runner.
+ *  @author Pavel Gladkevich
+ */
+public class TournamentTest {
+
+    @Test
+    public void testElo() {
+        assertEquals(0.0, elo(0.5), 1e-9);
+        assertEquals(190.85, elo(0.75), 0.01);
+        assertEquals(-elo(0.6), elo(0.4), 1e-9);
+        double[] interval = eloInterval(60, 30, 10);
+        assertTrue(interval[0] < elo(0.65) && elo(0.65) < interval[1]);
+        assertTrue(interval[0] > 0);
+        double[] wider = eloInterval(6, 3, 1);
+        assertTrue(wider[0] < interval[0] && wider[1] > interval[1]);
+    }
+
+    @Test
+    public void testSelfPlay() {
+        int[] weights = Evaluator.DEFAULT_WEIGHTS;
+        Tournament tournament =
+            new Tournament(weights, weights, 60000, 2, 4, 61);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        tournament.run(5, 2, new PrintStream(log));
+        assertEquals(6, tournament.games());
+        int[] record = tournament.record();
+        assertEquals(record[0], record[1]);
+        assertEquals(0.5, tournament.score(), 1e-9);
+        assertEquals(4, tournament.opening(0).movesMade());
+        assertEquals(tournament.opening(1), tournament.opening(1));
+    }
+}
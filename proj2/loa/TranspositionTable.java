@@ -0,0 +1,174 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** A fixed-size table of the results of searching positions, indexed by
+ *  the positions' Zobrist keys (see Board.key), so that a search that
+ *  reaches a position by a different order of moves need not search it
+ *  again. Each entry records the depth searched, the value found, whether
+ *  that value is exact or only a bound, and the best move.
+ *
+ *  Entries go in buckets of two: one holds the deepest result stored in
+ *  the bucket during the current search, and the other is always
+ *  replaced. Results of earlier searches (see newSearch) are replaced
+ *  regardless of depth.
+ *
+ *  The table may be shared by threads without locking. Each entry is two
+ *  longs: its data and its key exclusive-or'ed with its data. A probe
+ *  that reads halves of two different stores sees a key that does not
+ *  match and treats the entry as absent.
+ *  @author Pavel Gladkevich
+ */
+class TranspositionTable {
+
+    /** Bound type of a value that is exact. */
+    static final int EXACT = 1;
+    /** Bound type of a value that is at most the true value. */
+    static final int LOWER = 2;
+    /** Bound type of a value that is at least the true value. */
+    static final int UPPER = 3;
+
+    /** Default number of entries. */
+    static final int DEFAULT_SIZE = 1 << 20;
+
+    /** A table with at least SIZE entries (rounded up to a power of 2). */
+    TranspositionTable(int size) {
+        int n = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        _keys = new long[n];
+        _data = new long[n];
+        _mask = n / 2 - 1;
+    }
+
+    /** A table with DEFAULT_SIZE entries. */
+    TranspositionTable() {
+        this(DEFAULT_SIZE);
+    }
+
+    /** Return the number of entries. */
+    int size() {
+        return _data.length;
+    }
+
+    /** Note the start of a new search, after which the entries already
+     *  present are replaced in preference to new ones. */
+    void newSearch() {
+        _age = (_age + 1) & AGE_MASK;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_data, 0);
+    }
+
+    /** Return the entry for the position with Zobrist key KEY, or 0 if
+     *  there is none. The result is to be taken apart by depth, bound,
+     *  value and move. */
+    long probe(long key) {
+        int i = bucket(key);
+        for (int k = i; k < i + 2; k += 1) {
+            long data = _data[k];
+            if (data != 0 && (_keys[k] ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /** Record that searching the position with Zobrist key KEY to DEPTH
+     *  gave VALUE, a bound of type BOUND, with best move MOVE (or null). */
+    void store(long key, int depth, int bound, int value, Move move) {
+        store(key, depth, bound, value, move == null ? 0 : move.code());
+    }
+
+    /** Record that searching the position with Zobrist key KEY to DEPTH
+     *  gave VALUE, a bound of type BOUND, with best move the one whose code
+     *  (see Move.code) is MOVE (or 0 if none). */
+    void store(long key, int depth, int bound, int value, int move) {
+        long data = ((long) value << VALUE_SHIFT)
+            | (long) Move.squares(move) << MOVE_SHIFT
+            | (long) _age << AGE_SHIFT
+            | (long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT
+            | bound;
+        int i = bucket(key);
+        int k;
+        if (holds(i, key)) {
+            k = i;
+        } else if (holds(i + 1, key)) {
+            k = i + 1;
+        } else if (age(_data[i]) != _age || depth >= depth(_data[i])) {
+            _keys[i + 1] = _keys[i];
+            _data[i + 1] = _data[i];
+            k = i;
+        } else {
+            k = i + 1;
+        }
+        if (move == 0 && holds(k, key)) {
+            data |= _data[k] & ((long) MOVE_MASK << MOVE_SHIFT);
+        }
+        _data[k] = data;
+        _keys[k] = key ^ data;
+    }
+
+    /** Return the depth of ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound type (EXACT, LOWER, or UPPER) of ENTRY. */
+    static int bound(long entry) {
+        return (int) entry & BOUND_MASK;
+    }
+
+    /** Return the value of ENTRY. */
+    static int value(long entry) {
+        return (int) (entry >> VALUE_SHIFT);
+    }
+
+    /** Return the best move of ENTRY, or null if it has none. Its
+     *  isCapture() is false. */
+    static Move move(long entry) {
+        return Move.mv(moveCode(entry));
+    }
+
+    /** Return the code (see Move.code) of the best move of ENTRY, without
+     *  its capture bit, or 0 if it has none. */
+    static int moveCode(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & MOVE_MASK;
+    }
+
+    /** Return the age of ENTRY. */
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    /** Return true iff entry K is for the position with key KEY. */
+    private boolean holds(int k, long key) {
+        return _data[k] != 0 && (_keys[k] ^ _data[k]) == key;
+    }
+
+    /** Return the index of the first entry of the bucket for KEY. */
+    private int bucket(long key) {
+        return (int) (key & _mask) << 1;
+    }
+
+    /** Layout of an entry: the bound in the low bits, then the depth, the
+     *  age, the move, and the value in the top 32 bits. */
+    private static final int
+        BOUND_MASK = 3,
+        DEPTH_SHIFT = 2, DEPTH_MASK = 0x7f,
+        AGE_SHIFT = 9, AGE_MASK = 0x3f,
+        MOVE_SHIFT = 15, MOVE_MASK = 0xfff,
+        VALUE_SHIFT = 32;
+
+    /** Keys of the entries, each exclusive-or'ed with its data. */
+    private final long[] _keys;
+    /** Data of the entries, or 0 for an empty entry. */
+    private final long[] _data;
+    /** Mask giving the bucket number from a key. */
+    private final int _mask;
+    /** The age of the current search. */
+    private int _age;
+}
@@ -0,0 +1,55 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Move.mv;
+import static loa.TranspositionTable.*;
+
+/** Tests of the TranspositionTable.
+ *  @author Pavel Gladkevich
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreProbe() {
+        TranspositionTable table = new TranspositionTable(1000);
+        assertEquals(1024, table.size());
+        assertEquals(0, table.probe(12345L));
+        table.store(12345L, 5, LOWER, -300, mv("b1-b3"));
+        long entry = table.probe(12345L);
+        assertEquals(5, depth(entry));
+        assertEquals(LOWER, bound(entry));
+        assertEquals(-300, value(entry));
+        assertEquals(mv("b1-b3"), move(entry));
+        table.store(12345L, 6, EXACT, 7, null);
+        entry = table.probe(12345L);
+        assertEquals(EXACT, bound(entry));
+        assertEquals(7, value(entry));
+        assertEquals(mv("b1-b3"), move(entry));
+        assertEquals(0, table.probe(12345L + 512));
+        table.clear();
+        assertEquals(0, table.probe(12345L));
+    }
+
+    @Test
+    public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(2);
+        table.store(1L, 8, EXACT, 1, null);
+        table.store(2L, 3, EXACT, 2, null);
+        table.store(3L, 2, EXACT, 3, null);
+        assertEquals(1, value(table.probe(1L)));
+        assertEquals(0, table.probe(2L));
+        assertEquals(3, value(table.probe(3L)));
+        table.store(4L, 9, EXACT, 4, null);
+        assertEquals(4, value(table.probe(4L)));
+        assertEquals(1, value(table.probe(1L)));
+        table.newSearch();
+        table.store(5L, 1, UPPER, 5, null);
+        assertEquals(5, value(table.probe(5L)));
+        assertEquals(4, value(table.probe(4L)));
+        assertEquals(0, table.probe(1L));
+    }
+}
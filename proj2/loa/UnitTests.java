@@ -15,6 +15,13 @@ public class UnitTests {
     public static void main(String[] ignored) {
         textui.runClasses(UnitTests.class);
         textui.runClasses(BoardTest.class);
+        textui.runClasses(MachinePlayerTest.class);
+        textui.runClasses(TranspositionTableTest.class);
+        textui.runClasses(EvaluatorTest.class);
+        textui.runClasses(TournamentTest.class);
+        textui.runClasses(PerftTest.class);
+        textui.runClasses(OpeningBookTest.class);
+        textui.runClasses(EndgameSolverTest.class);
     }
 
     /** A dummy test to avoid complaint. */
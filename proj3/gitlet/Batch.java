@@ -0,0 +1,91 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/** Batch mode for gitlet, which runs many commands in one session, invoked
+ *  as
+ *      java gitlet.Main batch [FILE]
+ *  Commands are read one per line from FILE, or from the standard input if
+ *  there is no FILE, and are written without the leading "java gitlet.Main":
+ *      add wug.txt
+ *      commit "added wug"
+ *  A line is split into words at whitespace. Double quotes group words
+ *  containing whitespace into one (and "" is an empty word); inside them,
+ *  \" and \\ stand for " and \. Blank lines and lines whose first non-blank
+ *  character is # are ignored.
+ *
+ *  Each command does exactly what `java gitlet.Main` does with the same
+ *  words, and prints the same output and error messages. An error ends
+ *  only the command that caused it; the batch goes on with the next line.
+ *  What stays warm between commands is the JVM itself, the commits already
+ *  read (see Main.readCOMMIT) and the reachability index.
+ *  @author Pavel Gladkevich
+ */
+class Batch {
+
+    /** Run every command read from INPUT, in order. */
+    static void run(BufferedReader input) throws IOException {
+        String line;
+        while ((line = input.readLine()) != null) {
+            try {
+                String[] words = split(line);
+                if (words.length == 0) {
+                    continue;
+                }
+                if (words[0].equals("batch")) {
+                    throw Utils.error("Cannot run batch inside a batch.");
+                }
+                new Main(words);
+            } catch (GitletException excp) {
+                System.out.flush();
+                System.err.printf("%s%n", excp.getMessage());
+            }
+            System.out.flush();
+        }
+    }
+
+    /** Return the words of the command LINE, which are empty if LINE is
+     *  blank or a comment. */
+    static String[] split(String line) {
+        ArrayList<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false, quoted = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                } else if (c == '\\' && i + 1 < line.length()
+                           && (line.charAt(i + 1) == '"'
+                               || line.charAt(i + 1) == '\\')) {
+                    i += 1;
+                    word.append(line.charAt(i));
+                } else {
+                    word.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else if (c == '#' && !inWord && words.isEmpty()) {
+                break;
+            } else if (c == '"') {
+                quoted = inWord = true;
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (quoted) {
+            throw Utils.error("Unterminated quote in: %s", line);
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words.toArray(new String[words.size()]);
+    }
+}
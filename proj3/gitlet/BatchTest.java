@@ -0,0 +1,42 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the command parsing of batch mode.
+ *  @author Pavel Gladkevich
+ */
+public class BatchTest {
+
+    @Test
+    public void testSplitWords() {
+        assertArrayEquals(new String[] { "add", "wug.txt" },
+                Batch.split("  add\twug.txt "));
+        assertArrayEquals(new String[] { "checkout", "--", "a.txt" },
+                Batch.split("checkout -- a.txt"));
+    }
+
+    @Test
+    public void testSplitQuotes() {
+        assertArrayEquals(new String[] { "commit", "added two files" },
+                Batch.split("commit \"added two files\""));
+        assertArrayEquals(new String[] { "commit", "" },
+                Batch.split("commit \"\""));
+        assertArrayEquals(new String[] { "find", "say \"hi\" \\o/" },
+                Batch.split("find \"say \\\"hi\\\" \\\\o/\""));
+        assertArrayEquals(new String[] { "commit", "a#b" },
+                Batch.split("commit a\"#\"b"));
+    }
+
+    @Test
+    public void testSplitBlankAndComments() {
+        assertEquals(0, Batch.split("").length);
+        assertEquals(0, Batch.split("   ").length);
+        assertEquals(0, Batch.split("  # a comment").length);
+    }
+
+    @Test(expected = GitletException.class)
+    public void testUnterminatedQuote() {
+        Batch.split("commit \"oops");
+    }
+}
@@ -35,7 +35,7 @@ public class Commit implements Serializable {
         _parent = prnt;
         _secondparent = null;
         _millitime = System.currentTimeMillis();
-        _blobs = current.getblobs();
+        _blobs = new HashMap<>(current.getblobs());
     }
     /** See comments for the other Commit constructors..
      *
@@ -49,7 +49,7 @@ public class Commit implements Serializable {
         _parent = prnt;
         _secondparent = sprnt;
         _millitime = System.currentTimeMillis();
-        _blobs = current.getblobs();
+        _blobs = new HashMap<>(current.getblobs());
     }
 
 
@@ -0,0 +1,348 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Codecs for the objects (blobs and commits) that gitlet stores.
+ *
+ *  Every stored object starts with a header byte naming the codec used for
+ *  the rest of the file. RAW objects are the serialized bytes as they are.
+ *  DEFLATE and LZ objects continue with the length of the serialized bytes
+ *  as a 4-byte big-endian integer, followed by the compressed bytes. Objects
+ *  written before compression existed begin with the Java serialization
+ *  magic number instead of a header, and are read as they are.
+ *
+ *  The codec used for new objects is taken from the system property
+ *  gitlet.codec ("deflate", "lz" or "raw"; deflate by default) and the
+ *  Deflater level from gitlet.level (0-9; 6 by default), so that e.g.
+ *      java -Dgitlet.codec=lz gitlet.Main commit "message"
+ *  stores the new objects with the LZ codec. Reading never depends on
+ *  these settings.
+ *  @author Pavel Gladkevich
+ */
+class Compression {
+
+    /** Header byte of an object stored as it is. */
+    static final byte RAW = 0;
+    /** Header byte of an object compressed with java.util.zip.Deflater. */
+    static final byte DEFLATE = 1;
+    /** Header byte of an object compressed with the LZ codec below. */
+    static final byte LZ = 2;
+
+    /** Objects smaller than this many bytes are never compressed. */
+    static final int MIN_SIZE = 64;
+    /** An object is only stored compressed if that saves at least
+     *  1/SAVING_DIVISOR of its size. */
+    static final int SAVING_DIVISOR = 16;
+    /** Objects of at least twice this size are first probed by compressing
+     *  a prefix of PROBE_SIZE bytes (at the fastest level), and stored raw if
+     *  the prefix does not compress. */
+    static final int PROBE_SIZE = 4096;
+
+    /** The codec used for new objects. */
+    static final byte CODEC =
+        codecNamed(System.getProperty("gitlet.codec", "deflate"));
+    /** The Deflater level used for new objects. */
+    static final int LEVEL =
+        Integer.parseInt(System.getProperty("gitlet.level", "6"));
+
+    /** Return the header byte of the codec called NAME. */
+    static byte codecNamed(String name) {
+        switch (name) {
+        case "raw":
+            return RAW;
+        case "deflate":
+            return DEFLATE;
+        case "lz":
+            return LZ;
+        default:
+            throw Utils.error("Unknown codec: %s", name);
+        }
+    }
+
+    /** Return the stored form of the serialized object DATA, using the
+     *  configured codec and level. */
+    static byte[] encode(byte[] data) {
+        return encode(data, CODEC, LEVEL);
+    }
+
+    /** Return the stored form of the serialized object DATA, compressed with
+     *  CODEC (at Deflater level LEVEL, for DEFLATE) unless DATA is too small
+     *  or does not compress well, in which case it is stored RAW. */
+    static byte[] encode(byte[] data, byte codec, int level) {
+        if (codec == RAW || data.length < MIN_SIZE) {
+            return header(RAW, data, data.length);
+        }
+        if (data.length >= 2 * PROBE_SIZE) {
+            byte[] probe = Arrays.copyOf(data, PROBE_SIZE);
+            if (!saves(pack(probe, codec, 1).length, PROBE_SIZE)) {
+                return header(RAW, data, data.length);
+            }
+        }
+        byte[] packed = pack(data, codec, level);
+        if (!saves(packed.length + 4, data.length)) {
+            return header(RAW, data, data.length);
+        }
+        byte[] result = header(codec, packed, packed.length + 4);
+        writeInt(result, 1, data.length);
+        return result;
+    }
+
+    /** Return DATA compressed with CODEC, which is DEFLATE (at LEVEL) or
+     *  LZ, without any header. */
+    private static byte[] pack(byte[] data, byte codec, int level) {
+        if (codec == DEFLATE) {
+            return deflate(data, level);
+        } else {
+            return compressLZ(data);
+        }
+    }
+
+    /** Return the serialized object whose stored form is STORED. */
+    static byte[] decode(byte[] stored) {
+        if (stored.length == 0 || stored[0] == (byte) 0xAC) {
+            return stored;
+        }
+        switch (stored[0]) {
+        case RAW:
+            return Arrays.copyOfRange(stored, 1, stored.length);
+        case DEFLATE:
+            return inflate(stored, 5, readInt(stored, 1));
+        case LZ:
+            return decompressLZ(stored, 5, readInt(stored, 1));
+        default:
+            throw Utils.error("Unknown codec in stored object.");
+        }
+    }
+
+    /** Return true iff storing SIZE bytes in place of ORIGINAL bytes saves
+     *  enough to be worth a decompression on every read. */
+    private static boolean saves(int size, int original) {
+        return size <= original - original / SAVING_DIVISOR;
+    }
+
+    /** Return a new array of length 1 + LENGTH holding CODEC followed by
+     *  DATA, placed at the end of the array. */
+    private static byte[] header(byte codec, byte[] data, int length) {
+        byte[] result = new byte[1 + length];
+        result[0] = codec;
+        System.arraycopy(data, 0, result, result.length - data.length,
+                data.length);
+        return result;
+    }
+
+    /** Store VALUE into BYTES[POSN..POSN+3], big-endian. */
+    private static void writeInt(byte[] bytes, int posn, int value) {
+        for (int i = 0; i < 4; i += 1) {
+            bytes[posn + i] = (byte) (value >>> (24 - 8 * i));
+        }
+    }
+
+    /** Return the big-endian integer in BYTES[POSN..POSN+3]. */
+    private static int readInt(byte[] bytes, int posn) {
+        int value = 0;
+        for (int i = 0; i < 4; i += 1) {
+            value = (value << 8) | (bytes[posn + i] & 0xff);
+        }
+        return value;
+    }
+
+    /* DEFLATE */
+
+    /** Return DATA compressed by a Deflater at LEVEL. */
+    static byte[] deflate(byte[] data, int level) {
+        Deflater deflater = new Deflater(level);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out =
+            new ByteArrayOutputStream(data.length / 2 + 16);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    /** Return the LENGTH bytes inflated from the deflated data that starts
+     *  at STORED[START]. Data that is truncated or inflates to some other
+     *  length is corrupt. */
+    static byte[] inflate(byte[] stored, int start, int length) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(stored, start, stored.length - start);
+        byte[] result = new byte[length];
+        try {
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int k = inflater.inflate(result, n, length - n);
+                if (k == 0 && (inflater.needsInput()
+                               || inflater.needsDictionary())) {
+                    throw Utils.error("Corrupted stored object.");
+                }
+                n += k;
+            }
+            if (n != length) {
+                throw Utils.error("Corrupted stored object.");
+            }
+        } catch (DataFormatException excp) {
+            throw Utils.error("Corrupted stored object.");
+        } finally {
+            inflater.end();
+        }
+        return result;
+    }
+
+    /* LZ
+     *
+     * A byte-oriented LZ77 codec in the style of LZ4, which trades some
+     * compression for much faster compression and decompression than
+     * Deflater. The compressed data is a series of sequences, each made of
+     *     a token byte: literal count (high 4 bits) and match length - 4
+     *                   (low 4 bits), where 15 means "more follows",
+     *     the rest of the literal count, as bytes of 255 ending with a byte
+     *                   less than 255, if the high bits were 15,
+     *     the literals,
+     *     the match offset, 2 bytes little-endian,
+     *     the rest of the match length, as for the literal count.
+     * The last sequence stops after its literals. */
+
+    /** The shortest match the LZ codec encodes. */
+    private static final int MIN_MATCH = 4;
+    /** The largest distance back to a match. */
+    private static final int MAX_OFFSET = 65535;
+    /** Log base 2 of the number of entries in the match-finding table. */
+    private static final int HASH_BITS = 14;
+
+    /** Return DATA compressed by the LZ codec. */
+    static byte[] compressLZ(byte[] data) {
+        int n = data.length;
+        byte[] out = new byte[n + n / 255 + 16];
+        int[] table = new int[1 << HASH_BITS];
+        Arrays.fill(table, -1);
+        int op = 0, anchor = 0, i = 0;
+        while (i + MIN_MATCH <= n) {
+            int word = readWord(data, i);
+            int h = (word * -1640531535) >>> (32 - HASH_BITS);
+            int candidate = table[h];
+            table[h] = i;
+            if (candidate < 0 || i - candidate > MAX_OFFSET
+                    || readWord(data, candidate) != word) {
+                i += 1;
+                continue;
+            }
+            int length = MIN_MATCH;
+            while (i + length < n
+                    && data[candidate + length] == data[i + length]) {
+                length += 1;
+            }
+            op = writeSequence(out, op, data, anchor, i - anchor,
+                    i - candidate, length);
+            i += length;
+            anchor = i;
+        }
+        op = writeSequence(out, op, data, anchor, n - anchor, 0, 0);
+        return Arrays.copyOf(out, op);
+    }
+
+    /** Return the LENGTH bytes decompressed from the LZ data that starts at
+     *  STORED[START]. */
+    static byte[] decompressLZ(byte[] stored, int start, int length) {
+        byte[] result = new byte[length];
+        int ip = start, op = 0;
+        try {
+            while (ip < stored.length) {
+                int token = stored[ip] & 0xff;
+                ip += 1;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = stored[ip] & 0xff;
+                        ip += 1;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(stored, ip, result, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip >= stored.length) {
+                    break;
+                }
+                int offset = (stored[ip] & 0xff)
+                    | ((stored[ip + 1] & 0xff) << 8);
+                ip += 2;
+                int match = token & 15;
+                if (match == 15) {
+                    int b;
+                    do {
+                        b = stored[ip] & 0xff;
+                        ip += 1;
+                        match += b;
+                    } while (b == 255);
+                }
+                match += MIN_MATCH;
+                if (offset >= match) {
+                    System.arraycopy(result, op - offset, result, op, match);
+                    op += match;
+                } else {
+                    for (int k = 0; k < match; k += 1, op += 1) {
+                        result[op] = result[op - offset];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException excp) {
+            throw Utils.error("Corrupted stored object.");
+        }
+        if (op != length) {
+            throw Utils.error("Corrupted stored object.");
+        }
+        return result;
+    }
+
+    /** Return the 4 bytes of DATA starting at POSN as an int. */
+    private static int readWord(byte[] data, int posn) {
+        return (data[posn] & 0xff) | ((data[posn + 1] & 0xff) << 8)
+            | ((data[posn + 2] & 0xff) << 16) | ((data[posn + 3] & 0xff) << 24);
+    }
+
+    /** Write one LZ sequence into OUT at OP, made of the LITERALS bytes of
+     *  DATA starting at ANCHOR and then a match of LENGTH bytes at distance
+     *  OFFSET, or no match if LENGTH is 0. Returns the new end of OUT. */
+    private static int writeSequence(byte[] out, int op, byte[] data,
+                                     int anchor, int literals, int offset,
+                                     int length) {
+        int extra = length == 0 ? 0 : length - MIN_MATCH;
+        out[op] = (byte) ((Math.min(literals, 15) << 4) | Math.min(extra, 15));
+        op += 1;
+        if (literals >= 15) {
+            op = writeLength(out, op, literals - 15);
+        }
+        System.arraycopy(data, anchor, out, op, literals);
+        op += literals;
+        if (length != 0) {
+            out[op] = (byte) offset;
+            out[op + 1] = (byte) (offset >>> 8);
+            op += 2;
+            if (extra >= 15) {
+                op = writeLength(out, op, extra - 15);
+            }
+        }
+        return op;
+    }
+
+    /** Write the continuation bytes of a length whose remaining part is
+     *  REST into OUT at OP. Returns the new end of OUT. */
+    private static int writeLength(byte[] out, int op, int rest) {
+        while (rest >= 255) {
+            out[op] = (byte) 255;
+            op += 1;
+            rest -= 255;
+        }
+        out[op] = (byte) rest;
+        return op + 1;
+    }
+}
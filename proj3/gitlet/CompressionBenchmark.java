@@ -0,0 +1,141 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** A benchmark of the codecs in Compression, invoked as
+ *      java gitlet.CompressionBenchmark [FILE or DIRECTORY ...]
+ *  Each FILE, and each plain file under each DIRECTORY, is turned into an
+ *  object as gitlet would store it. Files in a .gitlet/objects or
+ *  .gitlet/commits directory are taken to be stored objects already. With
+ *  no arguments, the benchmark uses the objects and commits of the
+ *  repository in the current directory, if there is one, and otherwise a
+ *  generated corpus of text, tiny and random objects.
+ *
+ *  For every codec it reports the disk footprint of the corpus, the time to
+ *  encode it, and the average latency of reading back (decoding) one
+ *  object.
+ *  @author Pavel Gladkevich
+ */
+public class CompressionBenchmark {
+
+    /** Number of times every object is decoded when measuring latency. */
+    private static final int READ_REPEATS = 20;
+
+    /** Run the benchmark on the files named in ARGS. */
+    public static void main(String... args) {
+        List<byte[]> corpus = new ArrayList<>();
+        if (args.length > 0) {
+            for (String name : args) {
+                collect(new File(name), corpus);
+            }
+        } else {
+            File gitlet = Utils.join(System.getProperty("user.dir"), ".gitlet");
+            collect(Utils.join(gitlet, "objects"), corpus);
+            collect(Utils.join(gitlet, "commits"), corpus);
+            if (corpus.isEmpty()) {
+                generate(corpus);
+            }
+        }
+        long rawBytes = 0;
+        for (byte[] obj : corpus) {
+            rawBytes += obj.length;
+        }
+        System.out.printf("%d objects, %d bytes serialized%n%n",
+                corpus.size(), rawBytes);
+        System.out.printf("%-10s %12s %7s %11s %14s%n", "codec",
+                "stored bytes", "ratio", "encode (ms)", "read (us/obj)");
+        run("raw", Compression.RAW, 0, corpus, rawBytes);
+        run("deflate-1", Compression.DEFLATE, 1, corpus, rawBytes);
+        run("deflate-6", Compression.DEFLATE, 6, corpus, rawBytes);
+        run("deflate-9", Compression.DEFLATE, 9, corpus, rawBytes);
+        run("lz", Compression.LZ, 0, corpus, rawBytes);
+    }
+
+    /** Encode every object of CORPUS with CODEC at LEVEL, decode them all
+     *  back, and print one line of results labeled NAME. RAWBYTES is the
+     *  total size of CORPUS. */
+    private static void run(String name, byte codec, int level,
+                            List<byte[]> corpus, long rawBytes) {
+        List<byte[]> stored = new ArrayList<>(corpus.size());
+        for (byte[] obj : corpus) {
+            Compression.encode(obj, codec, level);
+        }
+        long start = System.nanoTime();
+        long storedBytes = 0;
+        for (byte[] obj : corpus) {
+            byte[] s = Compression.encode(obj, codec, level);
+            storedBytes += s.length;
+            stored.add(s);
+        }
+        double encodeMs = (System.nanoTime() - start) / 1e6;
+        long check = 0;
+        for (byte[] s : stored) {
+            check += Compression.decode(s).length;
+        }
+        start = System.nanoTime();
+        for (int r = 0; r < READ_REPEATS; r += 1) {
+            for (byte[] s : stored) {
+                check += Compression.decode(s).length;
+            }
+        }
+        double readUs = (System.nanoTime() - start) / 1e3
+            / READ_REPEATS / Math.max(1, stored.size());
+        if (check != rawBytes * (READ_REPEATS + 1)) {
+            throw new IllegalStateException("decoded objects differ");
+        }
+        System.out.printf("%-10s %12d %7.3f %11.1f %14.2f%n", name,
+                storedBytes, (double) storedBytes / Math.max(1, rawBytes),
+                encodeMs, readUs);
+    }
+
+    /** Add the objects in FILE, or in the plain files under FILE if it is
+     *  a directory, to CORPUS. */
+    private static void collect(File file, List<byte[]> corpus) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    collect(f, corpus);
+                }
+            }
+        } else if (file.isFile()) {
+            byte[] contents = Utils.readContents(file);
+            String dir = file.getParentFile() == null ? ""
+                : file.getParentFile().getName();
+            if (dir.equals("objects") || dir.equals("commits")) {
+                corpus.add(Compression.decode(contents));
+            } else {
+                corpus.add(Utils.serialize(contents));
+            }
+        }
+    }
+
+    /** Add a generated corpus of source-like text files, tiny files and
+     *  random (incompressible) files to CORPUS. */
+    private static void generate(List<byte[]> corpus) {
+        Random random = new Random(61);
+        String[] words = { "public", "private", "static", "void", "int",
+            "return", "if", "else", "for", "while", "String", "File",
+            "commit", "blob", "branch", "merge", "=", "+=", "{", "}", ";" };
+        for (int i = 0; i < 200; i += 1) {
+            StringBuilder text = new StringBuilder();
+            int length = 200 + random.nextInt(20000);
+            while (text.length() < length) {
+                text.append(words[random.nextInt(words.length)]);
+                text.append(random.nextInt(8) == 0 ? "\n" : " ");
+            }
+            corpus.add(Utils.serialize(text.toString().getBytes()));
+        }
+        for (int i = 0; i < 100; i += 1) {
+            corpus.add(Utils.serialize(("line " + i + "\n").getBytes()));
+        }
+        for (int i = 0; i < 20; i += 1) {
+            byte[] noise = new byte[1000 + random.nextInt(50000)];
+            random.nextBytes(noise);
+            corpus.add(Utils.serialize(noise));
+        }
+    }
+}
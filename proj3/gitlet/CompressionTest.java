@@ -0,0 +1,106 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests of the codecs in Compression.
+ *  @author Pavel Gladkevich
+ */
+public class CompressionTest {
+
+    /** Return N bytes of repetitive, text-like data drawn using RANDOM. */
+    private static byte[] text(int n, Random random) {
+        String[] words = { "gitlet ", "commit ", "blob ", "merge\n", "a" };
+        StringBuilder result = new StringBuilder();
+        while (result.length() < n) {
+            result.append(words[random.nextInt(words.length)]);
+        }
+        return result.substring(0, n).getBytes();
+    }
+
+    /** Check that DATA survives encoding with CODEC at LEVEL. */
+    private static void checkRoundTrip(byte[] data, byte codec, int level) {
+        byte[] stored = Compression.encode(data, codec, level);
+        assertArrayEquals(data, Compression.decode(stored));
+    }
+
+    @Test
+    public void testRoundTrips() {
+        Random random = new Random(42);
+        byte[][] inputs = {
+            new byte[0], "tiny".getBytes(), text(100, random),
+            text(5000, random), text(100000, random), new byte[70000],
+        };
+        for (byte[] data : inputs) {
+            checkRoundTrip(data, Compression.RAW, 0);
+            checkRoundTrip(data, Compression.DEFLATE, 1);
+            checkRoundTrip(data, Compression.DEFLATE, 9);
+            checkRoundTrip(data, Compression.LZ, 0);
+        }
+    }
+
+    @Test
+    public void testLZOnRandomData() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i += 1) {
+            byte[] data = new byte[random.nextInt(3000)];
+            for (int k = 0; k < data.length; k += 1) {
+                data[k] = (byte) random.nextInt(1 + i % 5);
+            }
+            byte[] packed = Compression.compressLZ(data);
+            assertArrayEquals(data,
+                    Compression.decompressLZ(packed, 0, data.length));
+        }
+    }
+
+    @Test
+    public void testCompressesText() {
+        byte[] data = text(20000, new Random(3));
+        assertTrue(Compression.encode(data, Compression.LZ, 0).length
+                < data.length / 2);
+        assertEquals(Compression.DEFLATE,
+                Compression.encode(data, Compression.DEFLATE, 6)[0]);
+    }
+
+    @Test
+    public void testSkipsTinyAndIncompressible() {
+        byte[] tiny = text(Compression.MIN_SIZE - 1, new Random(1));
+        assertEquals(Compression.RAW,
+                Compression.encode(tiny, Compression.DEFLATE, 6)[0]);
+        byte[] noise = new byte[50000];
+        new Random(2).nextBytes(noise);
+        byte[] stored = Compression.encode(noise, Compression.LZ, 0);
+        assertEquals(Compression.RAW, stored[0]);
+        assertEquals(noise.length + 1, stored.length);
+    }
+
+    /** Check that decoding the first half of DATA encoded with CODEC
+     *  fails as a corrupted object. */
+    private static void checkTruncated(byte[] data, byte codec) {
+        byte[] stored = Compression.encode(data, codec, 6);
+        assertEquals(codec, stored[0]);
+        byte[] truncated = Arrays.copyOf(stored, stored.length / 2);
+        try {
+            Compression.decode(truncated);
+            fail("decoded a truncated object");
+        } catch (GitletException excp) {
+            assertEquals("Corrupted stored object.", excp.getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTruncated() {
+        byte[] data = text(5000, new Random(5));
+        checkTruncated(data, Compression.DEFLATE);
+        checkTruncated(data, Compression.LZ);
+    }
+
+    @Test
+    public void testReadsUncompressedObjects() {
+        byte[] legacy = Utils.serialize("contents".getBytes());
+        assertArrayEquals(legacy, Compression.decode(legacy));
+    }
+}
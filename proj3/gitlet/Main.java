@@ -1,15 +1,20 @@
 package gitlet;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
 
 import static gitlet.Utils.UID_LENGTH;
 
@@ -52,6 +57,7 @@ public class Main {
         _removal = Utils.join(_staging, "removal");
         _commits = Utils.join(_gitlet, "commits");
         _remotesLOCAL = Utils.join(_gitlet, "remotes");
+        _reachability = Utils.join(_gitlet, "reachability");
 
         switch (args[0]) {
         case "init":
@@ -90,11 +96,16 @@ public class Main {
             fetch(args); break;
         case "pull":
             pull(args); break;
+        case "batch":
+            batch(args); break;
 
         default:
             throw Utils.error("No command with that name exists.",
                         args[0]);
         }
+        if (_index != null) {
+            _index.save(_reachability, branchTIPS());
+        }
     }
 
     /** init: If a Gitlet version control system already exists in the current
@@ -722,8 +733,7 @@ public class Main {
         _givnMERGECOM = _current;
         _givnMERGEBLOBS = _blobs;
         mergecheckUNTRACKED();
-        _givnANCESTORS = new HashMap<>();
-        findgivnANCESTORS(_givnMERGESHA);
+        _givnANCESTORS = index().reachable(_givnMERGESHA);
         findsplitPOINT();
         if (_spltMERGESHA.compareTo(_givnMERGESHA) == 0) {
             System.out.println("Given branch is an ancestor of the current "
@@ -840,21 +850,16 @@ public class Main {
         _remoteBRNCHFILE = Utils.join(_branchesREMOTE, _remoteBRNCHNAME);
         _commitsREMOTE = Utils.join(_gitletREMOTE, "commits");
         setcurrent();
-        _currFIRSTANCESTORS = new HashMap<>();
-        findFIRSTANCESTORS(_currSHA);
-        if (!_remoteBRNCHFILE.exists()) {
-            Utils.writeContents(_remoteBRNCHFILE, _currSHA);
-        } else {
+        _remoteCURRSHA = null;
+        if (_remoteBRNCHFILE.exists()) {
             _remoteCURRSHA = Utils.readContentsAsString(_remoteBRNCHFILE);
-            if (!_currFIRSTANCESTORS.containsKey(_remoteCURRSHA)) {
+            if (!index().isAncestor(_remoteCURRSHA, _currSHA)) {
                 throw Utils.error("Please pull down remote changes "
                         + "before pushing.", args[0]);
             }
         }
-        setcurrent();
         Utils.writeContents(_remoteBRNCHFILE, _currSHA);
-        for (Map.Entry mapElement : _currFIRSTANCESTORS.entrySet()) {
-            String comSHA = (String) mapElement.getKey();
+        for (String comSHA : index().difference(_currSHA, _remoteCURRSHA)) {
             File localCOM = Utils.join(_commits, comSHA);
             File remoteCOM = Utils.join(_commitsREMOTE, comSHA);
             if (!remoteCOM.exists()) {
@@ -967,6 +972,36 @@ public class Main {
         merge(margs);
     }
 
+    /** Runs the commands read from the file named in ARGS, or from the
+     * standard input if no file is named, one per line, in this session.
+     * See Batch for the format of the commands. A named file is closed
+     * afterwards; the standard input is left open.
+     *
+     * Failure cases: If the named file does not exist, prints the error
+     * message "File does not exist." */
+    private void batch(String[] args) {
+        if (args.length > 2) {
+            throw Utils.error("Incorrect operands.", args[0]);
+        }
+        try {
+            if (args.length == 2) {
+                File script = Utils.join(_cwd, args[1]);
+                if (!script.isFile()) {
+                    throw Utils.error("File does not exist.", args[0]);
+                }
+                try (BufferedReader input =
+                         Files.newBufferedReader(script.toPath())) {
+                    Batch.run(input);
+                }
+            } else {
+                Batch.run(new BufferedReader(
+                              new InputStreamReader(System.in)));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /** Helper method for updating the HEAD file for the passed
      * in ACTIVEBRANCH. */
     public void updateHEAD(String activeBRANCH) {
@@ -981,9 +1016,9 @@ public class Main {
     }
     /** Helper method for updating the commits/commitSHA1 file. The string
      * representing the file is COMMITSHA1 and the contents are contained in
-     * SERIALIZEDCOMMIT. */
+     * SERIALIZEDCOMMIT, which is stored compressed. */
     public void updateCOMMIT(String commitSHA1, byte[] serializedCOMMIT) {
-        Utils.writeContents(Utils.join(_commits, commitSHA1), serializedCOMMIT);
+        Utils.writeStored(Utils.join(_commits, commitSHA1), serializedCOMMIT);
     }
     /** Helper method for setting the _current Commit. */
     public void setcurrent() {
@@ -991,7 +1026,7 @@ public class Main {
         File file = new File(path);
         _currSHA = Utils.readContentsAsString(file);
         File commit = Utils.join(_commits, _currSHA);
-        _current = Utils.readObject(commit, Commit.class);
+        _current = readCOMMIT(commit);
         _parent = _current.getparent();
         _secondparent = _current.getsecondparent();
     }
@@ -999,7 +1034,7 @@ public class Main {
     public void setcurrentTOID(String sha) {
         File commit = Utils.join(_commits, sha);
         _currSHA = sha;
-        _current = Utils.readObject(commit, Commit.class);
+        _current = readCOMMIT(commit);
         _parent = _current.getparent();
         _secondparent = _current.getsecondparent();
     }
@@ -1015,11 +1050,11 @@ public class Main {
     /** Helper method for updating the _objects with a potentially new blob.
      * If the BLOB already exists, then the SHA string will be representing its
      * file name and there will be a match, so it is not re-created. This way
-     * every blob is unique. */
+     * every blob is unique. Blobs are stored compressed (see Compression). */
     public void updateOBJECTS(String sha, byte[] blob) {
         File name = Utils.join(_objects, sha);
         if (!name.exists()) {
-            Utils.writeContents(name, blob);
+            Utils.writeStored(name, blob);
         }
     }
     /** Helper method for de-serializing and retrieving the contents of the
@@ -1134,44 +1169,33 @@ public class Main {
             }
         }
     }
-    /** Helper method for the merge command to find all of the ancestors of the
-     * given commit associated with  the provided SHA. This method fills out
-     * the _givnANCESTORS hashmap. Traversal is performed recursively */
-    private void findgivnANCESTORS(String sha) {
-        if (sha == null) {
-            return;
-        }
-        setcurrentTOID(sha);
-        if (!_givnANCESTORS.containsKey(_currSHA)) {
-            _givnANCESTORS.put(_currSHA, _current);
-            String sprnt = _secondparent;
-            findgivnANCESTORS(_parent);
-            findgivnANCESTORS(sprnt);
-        }
-    }
     /** Helper method for the merge command to find the latest common ancestor,
      * or in other words the split-point. For this purpose a BFS is performed
      * with a traversal or the parent and secondparent of _currMERGECOM.
      * Because the parent is added to the queue first in the case of crisscross
-     * merges the parent will always be selected as the split-point. */
+     * merges the parent will always be selected as the split-point. The walk
+     * uses the parent positions in the reachability index, and tests each
+     * commit against the bitmap of the given branch's ancestors, so no
+     * commit is deserialized until the split-point is found. */
     private void findsplitPOINT() {
-        int capacity = 8;
-        ArrayBlockingQueue<String> queue = new ArrayBlockingQueue<>(capacity);
-        queue.add(_currMERGESHA);
-        while (queue.size() != 0) {
-            String sha = queue.poll();
-            if (_givnANCESTORS.containsKey(sha)) {
-                _spltMERGESHA = sha;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        BitSet visited = new BitSet();
+        queue.add(index().position(_currMERGESHA));
+        while (!queue.isEmpty()) {
+            int posn = queue.poll();
+            if (_givnANCESTORS.get(posn)) {
+                _spltMERGESHA = index().commitAt(posn);
                 setcurrentTOID(_spltMERGESHA);
                 setBLOBS();
                 _spltMERGEBLOBS = _blobs;
                 _spltMERGECOM = _current;
                 return;
             }
-            setcurrentTOID(sha);
-            queue.add(_parent);
-            if (_secondparent != null) {
-                queue.add(_secondparent);
+            visited.set(posn);
+            for (int parent : index().parents(posn)) {
+                if (parent >= 0 && !visited.get(parent)) {
+                    queue.add(parent);
+                }
             }
         }
     }
@@ -1296,21 +1320,52 @@ public class Main {
     public void setcurrentTOREMOTEID(String sha) {
         File commit = Utils.join(_commitsREMOTE, sha);
         _currSHA = sha;
-        _current = Utils.readObject(commit, Commit.class);
+        _current = readCOMMIT(commit);
         _parent = _current.getparent();
         _secondparent = _current.getsecondparent();
     }
-    /** Helper method for the push command to find all of the first parent
-     * ancestors of the current commit associated with the provided SHA.
-     * This method fills out the _currFIRSTANCESTORS hashmap.
-     * Traversal is performed recursively */
-    private void findFIRSTANCESTORS(String sha) {
-        if (sha == null) {
-            return;
+    /** Helper method returning the commit stored in FILE. Commits never
+     * change once written and are named by their SHA-1 UID, so each one is
+     * deserialized only once per session and then kept in _commitCACHE.
+     * @return the commit */
+    static Commit readCOMMIT(File file) {
+        Commit commit = _commitCACHE.get(file.getName());
+        if (commit == null) {
+            commit = Utils.readObject(file, Commit.class);
+            _commitCACHE.put(file.getName(), commit);
+        }
+        return commit;
+    }
+    /** Helper method returning the reachability index of this repository,
+     * loading it on first use.
+     * @return the index */
+    private ReachabilityIndex index() {
+        if (_index == null) {
+            _index = ReachabilityIndex.load(_reachability, _commits);
+        }
+        return _index;
+    }
+    /** Helper method returning the SHA-1 UIDs of the heads of all local
+     * branches, including local copies of remote branches.
+     * @return list of branch heads */
+    private List<String> branchTIPS() {
+        List<String> tips = new ArrayList<>();
+        ArrayDeque<File> dirs = new ArrayDeque<>();
+        dirs.add(_branches);
+        while (!dirs.isEmpty()) {
+            File[] files = dirs.poll().listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    dirs.add(file);
+                } else {
+                    tips.add(Utils.readContentsAsString(file));
+                }
+            }
         }
-        setcurrentTOID(sha);
-        _currFIRSTANCESTORS.put(_currSHA, _current);
-        findFIRSTANCESTORS(_parent);
+        return tips;
     }
     /** Helper method for fetch to copy over blobs and commits. */
     private void copyCOMMITS() {
@@ -1387,6 +1442,9 @@ public class Main {
     /** File object representing the local .gitlet/remotes directory that stores
      * remote files representing the path to each remote/.gitlet directory. */
     private static File _remotesLOCAL;
+    /** File object representing the ~/.gitlet/reachability file that stores
+     * the reachability index of the commit graph. */
+    private static File _reachability;
     /** File object representing the [remote path]/.gitlet directory. */
     private static File _gitletREMOTE;
     /** File object representing the [remote path]/.gitlet/objects directory. */
@@ -1446,21 +1504,29 @@ public class Main {
     private Commit _currMERGECOM;
     /** The current Commit's blobs HashMap when a merge command is called. */
     private HashMap<String, String> _currMERGEBLOBS;
-    /** The given Commit's ancestors HashMap that contains all of the ancestors
-     * Commit objects indexed by their corresponding SHA-1 UID. It is filled
-     * by the findgivnANCESTORS() method when a merge command is called. */
-    private HashMap<String, Commit> _givnANCESTORS;
+    /** The given Commit's ancestors as a bitmap over the positions of the
+     * reachability index, filled when a merge command is called. */
+    private BitSet _givnANCESTORS;
     /** The split-point commit's SHA-1 UID when a merge command is called. */
     private String _spltMERGESHA;
     /** The split-point's Commit object when a merge command is called. */
     private Commit _spltMERGECOM;
     /** The split-point Commit's blobs when a merge command is called. */
     private HashMap<String, String> _spltMERGEBLOBS;
-    /** The current Commit's ancestors HashMap that contains all of the
-     * ancestors Commit objects indexed by their corresponding SHA-1 UID. It is
-     * filled by the findFIRSTANCESTORS() method when a push command is called.
-     * This will then be used to update the remote */
-    private HashMap<String, Commit> _currFIRSTANCESTORS;
+    /** The reachability index of this repository, or null if it has not
+     * been needed yet. It is shared by all the commands of a batch. */
+    private static ReachabilityIndex _index;
+    /** Maximum number of commits kept in _commitCACHE. */
+    private static final int COMMIT_CACHE_SIZE = 4096;
+    /** The commits read so far in this session, by SHA-1 UID, least
+     * recently used first. */
+    private static final LinkedHashMap<String, Commit> _commitCACHE =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Commit> e) {
+                return size() > COMMIT_CACHE_SIZE;
+            }
+        };
     /** String basecase for use in fetch. */
     private String _basecase;
     /** String List for use in status. */
@@ -0,0 +1,264 @@
+package gitlet;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Reachability bitmaps over the commit graph, for use in gitlet.
+ *
+ *  Every commit the index knows about is given a position in a topological
+ *  ordering of the commit graph: a commit is only ever placed after both of
+ *  its parents. The set of commits reachable from a commit (the commit and
+ *  all of its ancestors) is then a bitmap over those positions, so ancestry
+ *  checks and differences between commit sets become bit operations rather
+ *  than walks that deserialize every ancestor.
+ *
+ *  Bitmaps are kept for branch tips only. The bitmap of any other commit is
+ *  computed by walking its ancestors through the parent positions stored in
+ *  the index until the walk runs into a tip whose bitmap is known. On disk
+ *  each bitmap is stored run-length compressed, since the history of a
+ *  branch is made of long runs of set bits.
+ *  @author Pavel Gladkevich
+ */
+class ReachabilityIndex implements Serializable {
+
+    /** Return the index stored in FILE, or a new empty index if FILE does
+     *  not exist yet. Commits that are not in the index are read from the
+     *  COMMITS directory as they are needed. */
+    static ReachabilityIndex load(File file, File commits) {
+        ReachabilityIndex index;
+        if (file.exists()) {
+            index = Utils.readObject(file, ReachabilityIndex.class);
+        } else {
+            index = new ReachabilityIndex();
+        }
+        index._commits = commits;
+        index._bitmaps = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : index._runs.entrySet()) {
+            index._bitmaps.put(entry.getKey(), expand(entry.getValue()));
+        }
+        return index;
+    }
+
+    /** Write this index to FILE if it has changed since it was loaded. The
+     *  bitmaps of the commits in TIPS are computed if necessary and saved;
+     *  all other bitmaps are dropped. */
+    void save(File file, Collection<String> tips) {
+        HashMap<String, int[]> runs = new HashMap<>();
+        for (String tip : tips) {
+            if (!contains(tip)) {
+                continue;
+            }
+            int[] old = _runs.get(tip);
+            if (old != null) {
+                runs.put(tip, old);
+            } else {
+                runs.put(tip, compress(reachable(tip)));
+                _changed = true;
+            }
+        }
+        if (runs.size() != _runs.size()) {
+            _changed = true;
+        }
+        if (_changed) {
+            _runs = runs;
+            Utils.writeObject(file, this);
+            _changed = false;
+        }
+    }
+
+    /** Add the commit COMMIT, whose SHA-1 UID is SHA, to the index. Its
+     *  parents are indexed first if they are not already. */
+    void add(String sha, Commit commit) {
+        if (_positions.containsKey(sha)) {
+            return;
+        }
+        int parent = position(commit.getparent());
+        int second = position(commit.getsecondparent());
+        _positions.put(sha, _order.size());
+        _order.add(sha);
+        _parents.add(parent);
+        _secondparents.add(second);
+        _changed = true;
+    }
+
+    /** Return true iff the commit SHA is in the index or can be added to it
+     *  because it is in the local commits directory. */
+    boolean contains(String sha) {
+        return sha != null && (_positions.containsKey(sha)
+                || Utils.join(_commits, sha).isFile());
+    }
+
+    /** Return the position of commit SHA in the ordering, adding it and any
+     *  of its unindexed ancestors to the index. Returns -1 for a null SHA.
+     *  The walk is done with an explicit stack so that long histories do not
+     *  overflow the call stack. */
+    int position(String sha) {
+        if (sha == null) {
+            return -1;
+        }
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(sha);
+        while (!stack.isEmpty()) {
+            String top = stack.peek();
+            if (_positions.containsKey(top)) {
+                stack.pop();
+                continue;
+            }
+            Commit commit = Main.readCOMMIT(Utils.join(_commits, top));
+            String parent = commit.getparent();
+            String second = commit.getsecondparent();
+            if (parent != null && !_positions.containsKey(parent)) {
+                stack.push(parent);
+            } else if (second != null && !_positions.containsKey(second)) {
+                stack.push(second);
+            } else {
+                stack.pop();
+                add(top, commit);
+            }
+        }
+        return _positions.get(sha);
+    }
+
+    /** Return the SHA-1 UID of the commit at position POSN. */
+    String commitAt(int posn) {
+        return _order.get(posn);
+    }
+
+    /** Return the positions of the parent and second parent of the commit at
+     *  position POSN, with -1 standing for a missing parent. */
+    int[] parents(int posn) {
+        return new int[] { _parents.get(posn), _secondparents.get(posn) };
+    }
+
+    /** Return a new bitmap of the positions of every commit reachable from
+     *  commit SHA, including SHA itself. Positions are visited from the
+     *  highest down, which is valid because parents always come first in
+     *  the ordering. Any commit whose bitmap is already known contributes
+     *  it whole, and its ancestors are not visited again. */
+    BitSet reachable(String sha) {
+        BitSet cached = _bitmaps.get(sha);
+        if (cached != null) {
+            return (BitSet) cached.clone();
+        }
+        int start = position(sha);
+        BitSet result = new BitSet(start + 1);
+        BitSet closed = new BitSet(start + 1);
+        result.set(start);
+        for (int p = start; p >= 0; p = result.previousSetBit(p - 1)) {
+            if (closed.get(p)) {
+                continue;
+            }
+            BitSet known = _bitmaps.get(_order.get(p));
+            if (known != null) {
+                result.or(known);
+                closed.or(known);
+                continue;
+            }
+            int parent = _parents.get(p), second = _secondparents.get(p);
+            if (parent >= 0) {
+                result.set(parent);
+            }
+            if (second >= 0) {
+                result.set(second);
+            }
+        }
+        _bitmaps.put(sha, result);
+        return (BitSet) result.clone();
+    }
+
+    /** Return true iff the commit ANCESTOR is reachable from the commit
+     *  DESCENDANT. A commit counts as its own ancestor. Returns false if
+     *  ANCESTOR is not a commit of this repository. */
+    boolean isAncestor(String ancestor, String descendant) {
+        if (!contains(ancestor)) {
+            return false;
+        }
+        int posn = position(ancestor);
+        if (posn > position(descendant)) {
+            return false;
+        }
+        return reachable(descendant).get(posn);
+    }
+
+    /** Return the SHA-1 UIDs of the commits reachable from FROM but not
+     *  from EXCLUDED, in the order of the index (parents first). EXCLUDED
+     *  may be null or a commit unknown to this repository, in which case
+     *  nothing is excluded. */
+    List<String> difference(String from, String excluded) {
+        BitSet bits = reachable(from);
+        if (contains(excluded)) {
+            bits.andNot(reachable(excluded));
+        }
+        ArrayList<String> result = new ArrayList<>(bits.cardinality());
+        for (int p = bits.nextSetBit(0); p >= 0; p = bits.nextSetBit(p + 1)) {
+            result.add(_order.get(p));
+        }
+        return result;
+    }
+
+    /** Return the run-length encoding of BITS: the lengths of its
+     *  alternating runs of clear and set bits, starting with a (possibly
+     *  empty) run of clear bits. */
+    static int[] compress(BitSet bits) {
+        ArrayList<Integer> runs = new ArrayList<>();
+        int start = 0;
+        boolean ones = false;
+        while (true) {
+            int next;
+            if (ones) {
+                next = bits.nextClearBit(start);
+            } else {
+                next = bits.nextSetBit(start);
+                if (next < 0) {
+                    break;
+                }
+            }
+            runs.add(next - start);
+            start = next;
+            ones = !ones;
+        }
+        int[] result = new int[runs.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = runs.get(i);
+        }
+        return result;
+    }
+
+    /** Return the bitmap whose run-length encoding is RUNS. This is the
+     *  inverse of compress(). */
+    static BitSet expand(int[] runs) {
+        BitSet bits = new BitSet();
+        int start = 0;
+        for (int i = 0; i < runs.length; i += 1) {
+            if (i % 2 == 1) {
+                bits.set(start, start + runs[i]);
+            }
+            start += runs[i];
+        }
+        return bits;
+    }
+
+    /** SHA-1 UIDs of the indexed commits, in topological order. */
+    private ArrayList<String> _order = new ArrayList<>();
+    /** Position in _order of each indexed commit. */
+    private HashMap<String, Integer> _positions = new HashMap<>();
+    /** Position of the parent of each indexed commit, or -1. */
+    private ArrayList<Integer> _parents = new ArrayList<>();
+    /** Position of the second parent of each indexed commit, or -1. */
+    private ArrayList<Integer> _secondparents = new ArrayList<>();
+    /** Compressed reachability bitmaps of branch tips, as stored on disk. */
+    private HashMap<String, int[]> _runs = new HashMap<>();
+    /** Reachability bitmaps known in this session, by commit SHA-1 UID. */
+    private transient HashMap<String, BitSet> _bitmaps;
+    /** The directory holding the serialized commits. */
+    private transient File _commits;
+    /** True iff this index differs from the copy on disk. */
+    private transient boolean _changed;
+}
@@ -0,0 +1,161 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Random;
+
+/** Tests of the ReachabilityIndex.
+ *  @author Pavel Gladkevich
+ */
+public class ReachabilityIndexTest {
+
+    /** The commits of the merge graph used by the tests, in an order
+     *  that puts parents first: a <- b <- c on one branch, a <- d <- e on
+     *  another, the merge m of c and e, and f after m. */
+    private static final String[] NAMES = { "a", "b", "c", "d", "e", "m",
+                                            "f" };
+
+    /** Return the commits of the merge graph, named PREFIX followed by
+     *  the names in NAMES, in the same order. */
+    private static Commit[] graph(String prefix) {
+        Commit a = new Commit("initial commit");
+        Commit b = new Commit("b", prefix + "a", a);
+        Commit c = new Commit("c", prefix + "b", b);
+        Commit d = new Commit("d", prefix + "a", a);
+        Commit e = new Commit("e", prefix + "d", d);
+        Commit m = new Commit("m", prefix + "c", prefix + "e", c);
+        Commit f = new Commit("f", prefix + "m", m);
+        return new Commit[] { a, b, c, d, e, m, f };
+    }
+
+    /** Return a new empty directory. */
+    private static File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("reach").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /** Return an index of the merge graph, its commits added directly,
+     *  parents first, with commits directory COMMITS. */
+    private static ReachabilityIndex index(File commits) {
+        ReachabilityIndex index =
+            ReachabilityIndex.load(new File(commits, "none"), commits);
+        Commit[] graph = graph("");
+        for (int i = 0; i < NAMES.length; i += 1) {
+            index.add(NAMES[i], graph[i]);
+        }
+        return index;
+    }
+
+    @Test
+    public void testIsAncestor() throws IOException {
+        ReachabilityIndex index = index(tempDir());
+        assertTrue(index.isAncestor("a", "f"));
+        assertTrue(index.isAncestor("e", "f"));
+        assertTrue(index.isAncestor("c", "m"));
+        assertTrue(index.isAncestor("m", "m"));
+        assertFalse(index.isAncestor("f", "e"));
+        assertFalse(index.isAncestor("c", "e"));
+        assertFalse(index.isAncestor("d", "c"));
+        assertFalse(index.isAncestor("unknown", "f"));
+        assertFalse(index.isAncestor(null, "f"));
+    }
+
+    @Test
+    public void testDifference() throws IOException {
+        ReachabilityIndex index = index(tempDir());
+        assertEquals(Arrays.asList("d", "e", "m", "f"),
+                     index.difference("f", "c"));
+        assertEquals(Arrays.asList("b", "c", "m", "f"),
+                     index.difference("f", "e"));
+        assertEquals(Arrays.asList("d", "e"), index.difference("e", "c"));
+        assertEquals(Arrays.asList(NAMES), index.difference("f", null));
+        assertEquals(Arrays.asList("a", "b", "c"),
+                     index.difference("c", "unknown"));
+        assertEquals(Collections.emptyList(), index.difference("c", "f"));
+    }
+
+    @Test
+    public void testPositionFromDisk() throws IOException {
+        File commits = tempDir();
+        String prefix = "disk-";
+        Commit[] graph = graph(prefix);
+        for (int i = 0; i < NAMES.length; i += 1) {
+            File file = new File(commits, prefix + NAMES[i]);
+            file.deleteOnExit();
+            Utils.writeObject(file, graph[i]);
+        }
+        ReachabilityIndex index =
+            ReachabilityIndex.load(new File(commits, "none"), commits);
+        int m = index.position(prefix + "m");
+        assertEquals(5, m);
+        assertEquals(prefix + "m", index.commitAt(m));
+        int[] parents = index.parents(m);
+        assertEquals(index.position(prefix + "c"), parents[0]);
+        assertEquals(index.position(prefix + "e"), parents[1]);
+        for (String name : NAMES) {
+            int posn = index.position(prefix + name);
+            for (int parent : index.parents(posn)) {
+                assertTrue(parent < posn);
+            }
+        }
+        assertEquals(-1, index.position(null));
+        assertEquals(6, index.position(prefix + "f"));
+        assertTrue(index.isAncestor(prefix + "d", prefix + "f"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File commits = tempDir();
+        File file = new File(commits, "reachability");
+        file.deleteOnExit();
+        index(commits).save(file, Arrays.asList("f", "c", "unknown"));
+        ReachabilityIndex index = ReachabilityIndex.load(file, commits);
+        assertEquals(5, index.position("m"));
+        assertTrue(index.isAncestor("e", "f"));
+        assertFalse(index.isAncestor("e", "c"));
+        assertEquals(Arrays.asList("d", "e", "m", "f"),
+                     index.difference("f", "c"));
+    }
+
+    /** Check that BITS survives compression and expansion. */
+    private static void checkRoundTrip(BitSet bits) {
+        assertEquals(bits, ReachabilityIndex.expand(
+                         ReachabilityIndex.compress(bits)));
+    }
+
+    @Test
+    public void testCompress() {
+        BitSet empty = new BitSet();
+        assertEquals(0, ReachabilityIndex.compress(empty).length);
+        checkRoundTrip(empty);
+        BitSet ones = new BitSet();
+        ones.set(0, 100);
+        assertArrayEquals(new int[] { 0, 100 },
+                          ReachabilityIndex.compress(ones));
+        checkRoundTrip(ones);
+        BitSet runs = new BitSet();
+        runs.set(3, 5);
+        runs.set(9);
+        assertArrayEquals(new int[] { 3, 2, 4, 1 },
+                          ReachabilityIndex.compress(runs));
+        checkRoundTrip(runs);
+        Random random = new Random(26);
+        for (int i = 0; i < 100; i += 1) {
+            BitSet bits = new BitSet();
+            for (int k = random.nextInt(500); k >= 0; k -= 1) {
+                if (random.nextInt(4) != 0) {
+                    bits.set(k);
+                }
+            }
+            checkRoundTrip(bits);
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package gitlet;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -133,12 +133,14 @@ class Utils {
     }
 
     /** Return an object of type T read from FILE, casting it to EXPECTEDCLASS.
-     *  Throws IllegalArgumentException in case of problems. */
+     *  FILE may hold the object in any of the stored forms described in
+     *  Compression.  Throws IllegalArgumentException in case of problems. */
     static <T extends Serializable> T readObject(File file,
                                                  Class<T> expectedClass) {
         try {
+            byte[] serialized = Compression.decode(readContents(file));
             ObjectInputStream in =
-                new ObjectInputStream(new FileInputStream(file));
+                new ObjectInputStream(new ByteArrayInputStream(serialized));
             T result = expectedClass.cast(in.readObject());
             in.close();
             return result;
@@ -148,9 +150,15 @@ class Utils {
         }
     }
 
-    /** Write OBJ to FILE. */
+    /** Write OBJ to FILE, compressed as described in Compression. */
     static void writeObject(File file, Serializable obj) {
-        writeContents(file, serialize(obj));
+        writeStored(file, serialize(obj));
+    }
+
+    /** Write the serialized object SERIALIZED to FILE, compressed as
+     *  described in Compression. */
+    static void writeStored(File file, byte[] serialized) {
+        writeContents(file, Compression.encode(serialized));
     }
 
     /* DIRECTORIES */